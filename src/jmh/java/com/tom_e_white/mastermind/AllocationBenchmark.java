@@ -0,0 +1,48 @@
+package com.tom_e_white.mastermind;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares playing each game with a new {@link Game}, which builds a new solver (and for JaCoP, a new store and
+ * variables), with playing every game with one game whose solver is reset between games. Run it with the GC
+ * profiler (see {@link Benchmarks}) and compare <code>gc.alloc.rate.norm</code>, the bytes allocated per game.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class AllocationBenchmark {
+
+    @Param({"JACOP", "BITSET"})
+    public Game.Engine engine;
+
+    private Game reused;
+    private int secret;
+
+    @Setup
+    public void setup() {
+        reused = new Game();
+        reused.setEngine(engine);
+    }
+
+    private Move nextSecret() {
+        secret = (secret + 1) % Variant.STANDARD.getNumCodes();
+        return ScoreTable.get().getMove(secret);
+    }
+
+    @Benchmark
+    public Result playNewGame() {
+        Game game = new Game();
+        game.setEngine(engine);
+        return game.play(new ComputerScorer(nextSecret()));
+    }
+
+    @Benchmark
+    public Result playReusedGame() {
+        return reused.play(new ComputerScorer(nextSecret()));
+    }
+}
@@ -0,0 +1,64 @@
+package com.tom_e_white.mastermind;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ways of encoding a move's score as JaCoP constraints, by playing whole games with each, with and
+ * without {@link PairwiseInference}. As well as the time per game, the number of search nodes per game, and the number
+ * of pegs that pairwise inference actually ruled in or out, are reported as secondary results.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class EncodingBenchmark {
+
+    @Param({"PRIMITIVES", "SCORE_CONSTRAINT"})
+    public JaCoPSolver.Encoding encoding;
+
+    @Param({"false", "true"})
+    public boolean inference;
+
+    private int secret;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.EVENTS)
+    public static class Nodes {
+        public long nodes;
+        public long reductions;
+    }
+
+    /**
+     * Play a game against each secret in turn.
+     */
+    @Benchmark
+    public Result play(final Nodes nodes) {
+        secret = (secret + 1) % Variant.STANDARD.getNumCodes();
+        Move move = ScoreTable.get().getMove(secret);
+        Game game = new Game() {
+            private JaCoPSolver solver;
+
+            @Override
+            protected Solver createSolver() {
+                solver = new JaCoPSolver(Variant.STANDARD, encoding);
+                solver.setPairwiseInference(inference);
+                return solver;
+            }
+
+            @Override
+            public Result play(Scorer scorer) {
+                Result result = super.play(scorer);
+                if (solver != null) {
+                    nodes.nodes += solver.getNodes();
+                    nodes.reductions += solver.getPairwiseReductions();
+                }
+                return result;
+            }
+        };
+        return game.play(new ComputerScorer(move));
+    }
+}
@@ -0,0 +1,65 @@
+package com.tom_e_white.mastermind;
+
+import org.jacop.constraints.PrimitiveConstraint;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the solver: building the constraint for a move, searching for the next move, counting solutions,
+ * and playing a whole game.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class GameBenchmark {
+
+    /**
+     * A game part way through, after the two static moves have been made against the secret.
+     */
+    private Game game;
+    private JaCoPSolver solver;
+    private Move move;
+    private Score score;
+    private int secret;
+
+    @Setup
+    public void setup() {
+        Move secret = new Move(0, 4, 5, 5);
+        game = new Game();
+        game.start(new ComputerScorer(secret));
+        game.makeMove(new Move(0, 1, 2, 3));
+        game.makeMove(new Move(2, 3, 4, 5));
+        solver = new JaCoPSolver();
+        move = new Move(0, 4, 4, 0);
+        score = Score.score(secret, move);
+    }
+
+    @Benchmark
+    public PrimitiveConstraint scoreConstraint() {
+        return solver.scoreConstraint(move, score);
+    }
+
+    @Benchmark
+    public Move search() {
+        return game.search();
+    }
+
+    @Benchmark
+    public int countSolutions() {
+        return game.countSolutions();
+    }
+
+    /**
+     * Play a game against each secret in turn.
+     */
+    @Benchmark
+    public Result play() {
+        secret = (secret + 1) % Variant.STANDARD.getNumCodes();
+        Move move = ScoreTable.get().getMove(secret);
+        return new Game().play(new ComputerScorer(move));
+    }
+}
@@ -0,0 +1,61 @@
+package com.tom_e_white.mastermind;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for scoring moves.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ScoringBenchmark {
+
+    private Move[] moves;
+    private List<Integer>[] moveLists;
+    private Score score;
+    private int i;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void setup() {
+        ScoreTable table = ScoreTable.get();
+        moves = new Move[Variant.STANDARD.getNumCodes()];
+        moveLists = (List<Integer>[]) new List<?>[Variant.STANDARD.getNumCodes()];
+        for (int code = 0; code < Variant.STANDARD.getNumCodes(); code++) {
+            Move move = table.getMove(code);
+            moves[code] = move;
+            moveLists[code] = Scores.move(move.get(0).ordinal(), move.get(1).ordinal(), move.get(2).ordinal(),
+                    move.get(3).ordinal());
+        }
+        score = new Score(Score.Peg.WHITE, Score.Peg.RED);
+    }
+
+    private int next() {
+        i = (i + 1) % Variant.STANDARD.getNumCodes();
+        return i;
+    }
+
+    @Benchmark
+    public Score score() {
+        int secret = next();
+        return Score.score(moves[secret], moves[Variant.STANDARD.getNumCodes() - 1 - secret]);
+    }
+
+    @Benchmark
+    public Object scoresScore() {
+        int secret = next();
+        return Scores.score(moveLists[secret], moveLists[Variant.STANDARD.getNumCodes() - 1 - secret]);
+    }
+
+    @Benchmark
+    public Set<List<Score.Peg>> permutations() {
+        return score.permutations();
+    }
+}
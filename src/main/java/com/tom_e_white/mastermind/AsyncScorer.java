@@ -0,0 +1,14 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.util.concurrent.ListenableFuture;
+
+/**
+ * A scorer that doesn't block while a move is being scored, so that a game waiting for a score doesn't hold on to a
+ * thread. See {@link Game#playAsync(AsyncScorer, java.util.concurrent.Executor)}.
+ */
+public interface AsyncScorer {
+    /**
+     * Return a future that completes with the move's score.
+     */
+    ListenableFuture<Score> scoreAsync(Move move);
+}
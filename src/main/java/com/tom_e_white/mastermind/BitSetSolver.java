@@ -0,0 +1,124 @@
+package com.tom_e_white.mastermind;
+
+import java.util.List;
+
+/**
+ * A solver that keeps the set of solutions as a bitset over all codes. Each move clears the bits for the codes
+ * whose score against the move (from the {@link ScoreTable}) is not the score the move was given.
+ *
+ * This needs a bit per code, which is 12MB for the biggest variants, and each move scans every remaining solution.
+ */
+public class BitSetSolver implements Solver {
+
+    private final ScoreTable table;
+    private final long[] solutions;
+    private volatile long deadline;
+
+    public BitSetSolver() {
+        this(Variant.STANDARD);
+    }
+
+    public BitSetSolver(Variant variant) {
+        table = ScoreTable.get(variant);
+        solutions = new long[(variant.getNumCodes() + 63) >>> 6];
+        reset();
+    }
+
+    @Override
+    public Variant getVariant() {
+        return table.getVariant();
+    }
+
+    @Override
+    public void add(Move move, Score score) {
+        int moveCode = move.code();
+        int scoreId = score.id();
+        for (int i = 0; i < solutions.length; i++) {
+            long word = solutions[i];
+            while (word != 0) {
+                int bit = Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                if (table.score((i << 6) + bit, moveCode) != scoreId) {
+                    solutions[i] &= ~(1L << bit);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void reset() {
+        int numCodes = table.getVariant().getNumCodes();
+        for (int i = 0; i < solutions.length; i++) {
+            int bits = Math.min(64, numCodes - (i << 6));
+            solutions[i] = bits == 64 ? -1L : (1L << bits) - 1;
+        }
+        deadline = Long.MAX_VALUE;
+    }
+
+    @Override
+    public Move search(List<Move> played) {
+        for (int i = 0; i < solutions.length; i++) {
+            long word = solutions[i];
+            while (word != 0) {
+                int code = (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+                Move move = table.getMove(code);
+                if (!played.contains(move)) {
+                    return move;
+                }
+            }
+        }
+        throw new IllegalStateException("No solutions found for " + this);
+    }
+
+    @Override
+    public int[] candidates() {
+        int[] candidates = new int[countSolutions()];
+        int n = 0;
+        for (int i = 0; i < solutions.length; i++) {
+            long word = solutions[i];
+            while (word != 0) {
+                candidates[n++] = (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
+        return candidates;
+    }
+
+    @Override
+    public int countSolutions() {
+        int count = 0;
+        for (long word : solutions) {
+            count += Long.bitCount(word);
+        }
+        return count;
+    }
+
+    /**
+     * Kept for the strategy, but otherwise ignored, since searching and counting take a single pass over the bitset.
+     */
+    @Override
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    @Override
+    public long getDeadline() {
+        return deadline;
+    }
+
+    @Override
+    public boolean hitDeadline() {
+        return false;
+    }
+
+    @Override
+    public long getNodes() {
+        return 0;
+    }
+
+    @Override
+    public long getWrongDecisions() {
+        return 0;
+    }
+}
@@ -1,17 +1,31 @@
 package com.tom_e_white.mastermind;
 
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+
 /**
  * A computer scorer for when the computer knows the secret answer.
  */
-public class ComputerScorer implements Scorer {
-    private Move secret;
+public class ComputerScorer implements Scorer, AsyncScorer {
+    private ScoreTable table;
+    private int secret;
 
     public ComputerScorer(Move secret) {
-        this.secret = secret;
+        this.table = ScoreTable.get(secret.getVariant());
+        this.secret = secret.code();
+    }
+
+    public Move getSecret() {
+        return table.getMove(secret);
     }
 
     @Override
     public Score score(Move move) {
-        return Score.score(secret, move);
+        return table.getScore(table.score(secret, move.code()));
+    }
+
+    @Override
+    public ListenableFuture<Score> scoreAsync(Move move) {
+        return Futures.immediateFuture(score(move));
     }
 }
@@ -0,0 +1,202 @@
+package com.tom_e_white.mastermind;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.BitSet;
+
+/**
+ * A strategy's moves for every possible game, read from a file written by {@link DecisionTreeBuilder}. The file is
+ * memory-mapped, so looking up a move is a few reads from the page cache rather than a search.
+ *
+ * The file starts with a header, followed by the nodes. Each node is a move: the code of the move to play, the
+ * number of solutions before it is played, and a child node for each score the move can get (other than all white).
+ * <pre>
+ * header: int magic, int version, int positions, int colours, int max moves, long strategy fingerprint
+ * node:   int move code, int solutions count, byte number of children, then per child: byte score id, int offset
+ * </pre>
+ * The root node immediately follows the header. Nodes are referred to by their offset in the file. They are laid out
+ * depth first with no gaps, so every child comes after its parent, and the whole file is checked when it is opened,
+ * so that a truncated or corrupt file is rejected rather than failing part way through a game.
+ */
+public class DecisionTree {
+
+    static final int MAGIC = 0x4d4d4454; // "MMDT"
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 5 * 4 + 8;
+
+    /**
+     * Returned by {@link #getChild(int, int)} if a score has no child node.
+     */
+    public static final int NONE = -1;
+
+    private final MappedByteBuffer buffer;
+    private final Variant variant;
+    private final long fingerprint;
+
+    private DecisionTree(MappedByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_SIZE || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not a decision tree file");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unsupported decision tree version " + buffer.getInt(4));
+        }
+        try {
+            this.variant = new Variant(buffer.getInt(8), buffer.getInt(12), buffer.getInt(16));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid variant in decision tree: " + e.getMessage());
+        }
+        this.fingerprint = buffer.getLong(20);
+        checkNodes();
+    }
+
+    /**
+     * Check that the nodes fill the file exactly, that each has a valid move, and that each child is a node that
+     * comes after its parent.
+     */
+    private void checkNodes() throws IOException {
+        int size = buffer.capacity();
+        if (size == HEADER_SIZE) {
+            throw new IOException("Decision tree has no nodes");
+        }
+        BitSet nodes = new BitSet(size);
+        BitSet children = new BitSet(size);
+        for (int node = HEADER_SIZE; node < size; ) {
+            if (node + 9 > size) {
+                throw new IOException("Truncated decision tree node at " + node);
+            }
+            nodes.set(node);
+            int move = buffer.getInt(node);
+            if (move < 0 || move >= variant.getNumCodes() || buffer.getInt(node + 4) < 1) {
+                throw new IOException("Invalid decision tree node at " + node);
+            }
+            int numChildren = buffer.get(node + 8) & 0xff;
+            int end = node + 9 + 5 * numChildren;
+            if (end > size) {
+                throw new IOException("Truncated decision tree node at " + node);
+            }
+            for (int pos = node + 9; pos < end; pos += 5) {
+                int scoreId = buffer.get(pos) & 0xff;
+                int child = buffer.getInt(pos + 1);
+                if (scoreId >= variant.getNumScoreIds() || child <= node || child >= size) {
+                    throw new IOException("Invalid child of decision tree node at " + node);
+                }
+                children.set(child);
+            }
+            node = end;
+        }
+        children.andNot(nodes);
+        if (!children.isEmpty()) {
+            throw new IOException("Decision tree child at " + children.nextSetBit(0) + " is not a node");
+        }
+    }
+
+    /**
+     * Map the decision tree in the given file.
+     */
+    public static DecisionTree open(File file) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(file, "r");
+        try {
+            FileChannel channel = raf.getChannel();
+            return new DecisionTree(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } finally {
+            raf.close(); // the mapping stays valid after the channel is closed
+        }
+    }
+
+    /**
+     * Map the decision tree in the given file, if it exists and was built for the given variant and strategy, with
+     * solutions found in the given heuristic's order. Otherwise return null, so that the caller falls back to
+     * solving each move as it is played.
+     */
+    public static DecisionTree load(File file, Variant variant, Strategy strategy,
+                                    JaCoPSolver.Heuristic heuristic) {
+        if (!file.exists()) {
+            return null;
+        }
+        try {
+            DecisionTree tree = open(file);
+            if (!tree.isFor(variant, strategy, heuristic)) {
+                System.err.println("Ignoring stale decision tree " + file + " (built for " + tree.variant + ")");
+                return null;
+            }
+            return tree;
+        } catch (IOException e) {
+            System.err.println("Ignoring unreadable decision tree " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * A fingerprint of the strategy and the order its solver finds solutions in, so that a tree built for one
+     * strategy or heuristic isn't used for another.
+     */
+    static long fingerprint(Variant variant, Strategy strategy, JaCoPSolver.Heuristic heuristic) {
+        long hash = 1125899906842597L;
+        String name = strategy.getClass().getName() + "/" + heuristic.name();
+        for (int i = 0; i < name.length(); i++) {
+            hash = 31 * hash + name.charAt(i);
+        }
+        for (Move move : strategy.getOpeningMoves(variant)) {
+            hash = 31 * hash + move.code();
+        }
+        return hash;
+    }
+
+    /**
+     * Whether this tree was built for the given variant and strategy, and for a solver that finds solutions in the
+     * given heuristic's order (which for the solvers that don't search is {@link JaCoPSolver.Heuristic#INPUT_ORDER}).
+     */
+    public boolean isFor(Variant variant, Strategy strategy, JaCoPSolver.Heuristic heuristic) {
+        return this.variant.equals(variant) && fingerprint == fingerprint(variant, strategy, heuristic);
+    }
+
+    public Variant getVariant() {
+        return variant;
+    }
+
+    public int getRoot() {
+        return HEADER_SIZE;
+    }
+
+    /**
+     * The code of the move to play at the given node.
+     */
+    public int getMove(int node) {
+        return buffer.getInt(node);
+    }
+
+    /**
+     * The number of solutions at the given node, before its move is played.
+     */
+    public int getSolutionsCount(int node) {
+        return buffer.getInt(node + 4);
+    }
+
+    /**
+     * The node to go to when the move at the given node gets the given score, or {@link #NONE}.
+     */
+    public int getChild(int node, int scoreId) {
+        int numChildren = buffer.get(node + 8);
+        int pos = node + 9;
+        for (int i = 0; i < numChildren; i++, pos += 5) {
+            if (buffer.get(pos) == scoreId) {
+                return buffer.getInt(pos + 1);
+            }
+        }
+        return NONE;
+    }
+
+    static void writeHeader(ByteBuffer header, Variant variant, Strategy strategy, JaCoPSolver.Heuristic heuristic) {
+        header.putInt(MAGIC);
+        header.putInt(VERSION);
+        header.putInt(variant.getNumPositions());
+        header.putInt(variant.getNumColours());
+        header.putInt(variant.getMaxMoves());
+        header.putLong(fingerprint(variant, strategy, heuristic));
+    }
+}
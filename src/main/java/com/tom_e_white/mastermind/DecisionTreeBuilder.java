@@ -0,0 +1,139 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.collect.Lists;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * Builds a {@link DecisionTree} by playing out a strategy against every possible sequence of scores, in the same
+ * way as {@link Game} does, and writes it to a file.
+ *
+ * Each node is solved with a fresh {@link BitSetSolver} that replays the moves leading to it, so this is suitable
+ * for the standard game and other variants with precomputed scores.
+ */
+public class DecisionTreeBuilder {
+
+    private final Variant variant;
+    private final Strategy strategy;
+    private final ScoreTable table;
+    private final List<Move> openingMoves;
+    private int numNodes;
+
+    public DecisionTreeBuilder(Variant variant, Strategy strategy) {
+        this.variant = variant;
+        this.strategy = strategy;
+        this.table = ScoreTable.get(variant);
+        this.openingMoves = strategy.getOpeningMoves(variant);
+    }
+
+    private static class Node {
+        int move;
+        int solutionsCount;
+        int offset;
+        List<Integer> scoreIds = Lists.newArrayList();
+        List<Node> children = Lists.newArrayList();
+
+        int size() {
+            return 9 + 5 * children.size();
+        }
+    }
+
+    /**
+     * Build the tree and write it to the given file.
+     */
+    public void build(File file) throws IOException {
+        Node root = build(Lists.<Move>newArrayList(), Lists.<Score>newArrayList());
+        // lay the nodes out depth first, then write them
+        List<Node> nodes = Lists.newArrayList();
+        layout(root, nodes, DecisionTree.HEADER_SIZE);
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+        try {
+            ByteBuffer header = ByteBuffer.allocate(DecisionTree.HEADER_SIZE);
+            // the bitset solvers find solutions in code order, as the JaCoP input order heuristic does
+            DecisionTree.writeHeader(header, variant, strategy, JaCoPSolver.Heuristic.INPUT_ORDER);
+            out.write(header.array());
+            for (Node node : nodes) {
+                out.writeInt(node.move);
+                out.writeInt(node.solutionsCount);
+                out.writeByte(node.children.size());
+                for (int i = 0; i < node.children.size(); i++) {
+                    out.writeByte(node.scoreIds.get(i));
+                    out.writeInt(node.children.get(i).offset);
+                }
+            }
+        } finally {
+            out.close();
+        }
+    }
+
+    public int getNumNodes() {
+        return numNodes;
+    }
+
+    private int layout(Node node, List<Node> nodes, int offset) {
+        node.offset = offset;
+        nodes.add(node);
+        offset += node.size();
+        for (Node child : node.children) {
+            offset = layout(child, nodes, offset);
+        }
+        return offset;
+    }
+
+    private Node build(List<Move> played, List<Score> scores) {
+        Solver solver = new BitSetSolver(variant);
+        for (int i = 0; i < played.size(); i++) {
+            solver.add(played.get(i), scores.get(i));
+        }
+        Node node = new Node();
+        numNodes++;
+        Move move = played.size() < openingMoves.size() ? openingMoves.get(played.size())
+                : strategy.nextMove(solver, played);
+        node.move = move.code();
+        int[] candidates = solver.candidates();
+        node.solutionsCount = candidates.length;
+        if (played.size() + 1 >= variant.getMaxMoves()) {
+            return node;
+        }
+        int[] partitionSizes = new int[variant.getNumScoreIds()];
+        for (int candidate : candidates) {
+            partitionSizes[table.score(candidate, node.move)]++;
+        }
+        int allWhite = variant.scoreId(variant.getNumPositions(), 0);
+        for (int scoreId = 0; scoreId < partitionSizes.length; scoreId++) {
+            if (partitionSizes[scoreId] == 0 || scoreId == allWhite) {
+                continue;
+            }
+            played.add(move);
+            scores.add(table.getScore(scoreId));
+            node.scoreIds.add(scoreId);
+            node.children.add(build(played, scores));
+            played.remove(played.size() - 1);
+            scores.remove(scores.size() - 1);
+        }
+        return node;
+    }
+
+    /**
+     * Build a decision tree. Arguments: the file to write, then optionally the strategy (one of
+     * {@link Strategies#NAMES}, default first) and the variant (e.g. 4x6).
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: DecisionTreeBuilder <file> [" + Strategies.NAMES + "] [variant]");
+            System.exit(1);
+        }
+        File file = new File(args[0]);
+        Strategy strategy = Strategies.forName(args.length > 1 ? args[1] : "first");
+        Variant variant = args.length > 2 ? Variant.parse(args[2]) : Variant.STANDARD;
+        DecisionTreeBuilder builder = new DecisionTreeBuilder(variant, strategy);
+        builder.build(file);
+        System.out.println("Wrote " + builder.getNumNodes() + " nodes to " + file + " (" + file.length() + " bytes)");
+    }
+}
@@ -0,0 +1,23 @@
+package com.tom_e_white.mastermind;
+
+/**
+ * Neuwirth's strategy: the guess whose score tells us the most about the secret, i.e. whose partitions have the
+ * highest entropy, is played.
+ */
+public class EntropyStrategy extends PartitionStrategy {
+
+    /**
+     * The negated entropy in bits, <i>sum(s/n log2(s/n))</i> over the partition sizes <i>s</i>, so that the lowest
+     * cost is the highest entropy, computed as <i>sum(s log s) / n - log n</i>.
+     */
+    @Override
+    protected double cost(int[] partitionSizes, int numSolutions) {
+        double sum = 0;
+        for (int size : partitionSizes) {
+            if (size > 1) {
+                sum += size * Math.log(size);
+            }
+        }
+        return (sum / numSolutions - Math.log(numSolutions)) / Math.log(2);
+    }
+}
@@ -0,0 +1,18 @@
+package com.tom_e_white.mastermind;
+
+/**
+ * Irving's strategy: the guess that leaves the fewest solutions on average is played. A solution falls in a
+ * partition of size <i>s</i> with probability <i>s/n</i>, so the expected number left is the sum of the squares of
+ * the partition sizes over <i>n</i>.
+ */
+public class ExpectedSizeStrategy extends PartitionStrategy {
+
+    @Override
+    protected double cost(int[] partitionSizes, int numSolutions) {
+        long sumOfSquares = 0;
+        for (int size : partitionSizes) {
+            sumOfSquares += (long) size * size;
+        }
+        return (double) sumOfSquares / numSolutions;
+    }
+}
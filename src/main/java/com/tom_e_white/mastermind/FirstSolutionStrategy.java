@@ -0,0 +1,40 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * Plays two static moves to explore the solution space, then the first solution (in the solver's search order)
+ * that hasn't been played yet.
+ *
+ * The static moves have consecutive colours, the second starting half way along the first, so for the standard game
+ * they are 0, 1, 2, 3 and 2, 3, 4, 5.
+ */
+public class FirstSolutionStrategy implements Strategy {
+
+    private static final List<Move> OPENING_MOVES = ImmutableList.of(
+            new Move(0, 1, 2, 3),
+            new Move(2, 3, 4, 5)
+    );
+
+    @Override
+    public List<Move> getOpeningMoves(Variant variant) {
+        if (variant.equals(Variant.STANDARD)) {
+            return OPENING_MOVES;
+        }
+        int numPositions = variant.getNumPositions();
+        int[] first = new int[numPositions];
+        int[] second = new int[numPositions];
+        for (int pos = 0; pos < numPositions; pos++) {
+            first[pos] = pos % variant.getNumColours();
+            second[pos] = (pos + numPositions / 2) % variant.getNumColours();
+        }
+        return ImmutableList.of(new Move(variant, first), new Move(variant, second));
+    }
+
+    @Override
+    public Move nextMove(Solver solver, List<Move> played) {
+        return solver.search(played);
+    }
+}
@@ -1,367 +1,601 @@
 package com.tom_e_white.mastermind;
 
 import com.google.common.collect.*;
-import org.jacop.constraints.*;
-import org.jacop.core.Domain;
-import org.jacop.core.IntVar;
-import org.jacop.core.Store;
-import org.jacop.search.*;
-
+import com.google.common.util.concurrent.FutureCallback;
+import com.google.common.util.concurrent.Futures;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.SettableFuture;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import java.io.File;
 import java.io.IOException;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
-import java.util.Set;
-
-import static com.tom_e_white.mastermind.Score.Peg.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
 
 /**
- * Plays a game of Mastermind.
+ * Plays a game of Mastermind. By default this is the standard game of four pegs of six colours, but any
+ * {@link Variant} can be played.
  */
 public class Game {
 
-    private static final int MAX_MOVES = 8;
-    public static final int NUM_POSITIONS = 4;
-    public static final Set<Integer> ALL_POS = ImmutableSet.copyOf(Sets.newLinkedHashSet(Lists.newArrayList(0, 1, 2, 3)));
+    /**
+     * The solvers that a game can use to keep track of the solutions that are consistent with the moves so far.
+     */
+    public enum Engine {
+        /**
+         * Constraint propagation and search with JaCoP. This is the reference engine.
+         */
+        JACOP {
+            @Override
+            public Solver newSolver(Variant variant) {
+                return new JaCoPSolver(variant);
+            }
+
+            @Override
+            public long estimateSolverBytes(Variant variant) {
+                return JACOP_STORE_BYTES + 4L * variant.getNumCodes();
+            }
+        },
+        /**
+         * JaCoP, with each move's score imposed as a single {@link ScoreConstraint}.
+         */
+        JACOP_SCORE_CONSTRAINT {
+            @Override
+            public Solver newSolver(Variant variant) {
+                return new JaCoPSolver(variant, JaCoPSolver.Encoding.SCORE_CONSTRAINT);
+            }
+
+            @Override
+            public long estimateSolverBytes(Variant variant) {
+                return JACOP_STORE_BYTES + 4L * variant.getNumCodes();
+            }
+        },
+        /**
+         * A bitset over every code, filtered using the {@link ScoreTable} after each move.
+         */
+        BITSET {
+            @Override
+            public Solver newSolver(Variant variant) {
+                return new BitSetSolver(variant);
+            }
+
+            @Override
+            public long estimateSolverBytes(Variant variant) {
+                return variant.getNumCodes() / 8 + 64;
+            }
+        },
+        /**
+         * A scan through the codes in order, which needs no memory per code, for variants with too many codes to
+         * enumerate.
+         */
+        SEQUENTIAL {
+            @Override
+            public Solver newSolver(Variant variant) {
+                return new SequentialSolver(variant);
+            }
+
+            @Override
+            public long estimateSolverBytes(Variant variant) {
+                return 128 + 8L * variant.getMaxMoves();
+            }
+        };
+
+        /**
+         * A rough allowance for the store, variables and constraints of a JaCoP solver, besides its candidates.
+         */
+        private static final long JACOP_STORE_BYTES = 64 * 1024;
+
+        public abstract Solver newSolver(Variant variant);
+
+        /**
+         * A rough estimate of the most memory a solver for the given variant uses over a game, for capping the memory
+         * used by many games at once.
+         */
+        public abstract long estimateSolverBytes(Variant variant);
+    }
 
-    private static final int REPORT_NUM_SOLUTIONS = 0;
-    private static final boolean VERBOSE = false;
-    
+    private Variant variant = Variant.STANDARD;
+    private Engine engine = Engine.JACOP;
+    private JaCoPSolver.Heuristic heuristic = JaCoPSolver.Heuristic.INPUT_ORDER;
+    private int heuristicSeed;
+    private long moveBudgetNanos;
+    private List<Integer> movesOverBudget;
+    private boolean solutionsCountEstimated;
+    private boolean lastCountEstimated;
+    private Strategy strategy = new FirstSolutionStrategy();
     private Scorer scorer;
     private List<Move> moves;
     private Map<Move, Score> scores;
-    private Store store;
-    protected IntVar[] pegs;
+    private Solver solver;
+    private Engine solverEngine;
+    private List<Move> openingMoves;
+    private DecisionTree decisionTree;
+    private int node = DecisionTree.NONE;
+    private GameMetrics metrics = GameMetrics.NONE;
+    private GameLogWriter log;
+    private long lastNodes;
+    private long lastWrongDecisions;
+    private long chooseNanos;
+    private ListeningExecutorService speculationExecutor;
+    private Speculation speculation;
+    private Move speculatedMove;
+
+    public Variant getVariant() {
+        return variant;
+    }
+
+    public void setVariant(Variant variant) {
+        this.variant = variant;
+        this.openingMoves = null;
+    }
+
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public void setEngine(Engine engine) {
+        this.engine = engine;
+    }
+
+    public JaCoPSolver.Heuristic getHeuristic() {
+        return heuristic;
+    }
+
+    /**
+     * Set the search heuristic used by the JaCoP engines (the other engines don't search).
+     *
+     * @param seed the seed for {@link JaCoPSolver.Heuristic#RANDOM_VALUE}
+     */
+    public void setHeuristic(JaCoPSolver.Heuristic heuristic, int seed) {
+        this.heuristic = heuristic;
+        this.heuristicSeed = seed;
+    }
+
+    public long getMoveBudget(TimeUnit unit) {
+        return unit.convert(moveBudgetNanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Give each search for a move, and each count of the solutions, a time budget, after which the solver returns
+     * the best move it has found so far, or an estimated count. The moves that hit the budget are recorded in the
+     * {@link Result}. Zero (the default) means no budget.
+     *
+     * The JaCoP and sequential solvers, and the partition and optimal strategies, stop when the budget runs out. The
+     * bitset solver ignores it, since its searches and counts are a single pass over a bitset of the codes (though
+     * its strategy still keeps to it).
+     */
+    public void setMoveBudget(long budget, TimeUnit unit) {
+        this.moveBudgetNanos = unit.toNanos(budget);
+    }
+
+    public Strategy getStrategy() {
+        return strategy;
+    }
+
+    public void setStrategy(Strategy strategy) {
+        this.strategy = strategy;
+        this.openingMoves = null;
+    }
+
+    public DecisionTree getDecisionTree() {
+        return decisionTree;
+    }
+
+    /**
+     * Play moves from a precomputed decision tree for the game's variant and strategy, rather than solving for each
+     * move. If a score leads off the tree, the game carries on with the solver.
+     */
+    public void setDecisionTree(DecisionTree decisionTree) {
+        this.decisionTree = decisionTree;
+    }
+
+    public ListeningExecutorService getSpeculationExecutor() {
+        return speculationExecutor;
+    }
+
+    /**
+     * While each move is being scored, work out the next move for every score it could get, using the given
+     * executor. This is worth doing when scoring is slow compared to solving, as it is for a human. By default
+     * (null) there is no speculation.
+     */
+    public void setSpeculationExecutor(ListeningExecutorService speculationExecutor) {
+        this.speculationExecutor = speculationExecutor;
+    }
+
+    public GameLogWriter getLog() {
+        return log;
+    }
+
+    /**
+     * Append each game played to the given log.
+     */
+    public void setLog(GameLogWriter log) {
+        this.log = log;
+    }
+
+    public GameMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Report measurements of each move to the given metrics.
+     */
+    public void setMetrics(GameMetrics metrics) {
+        this.metrics = metrics;
+    }
 
-    @SuppressWarnings("unchecked")
     public Result play(Scorer scorer) {
-        this.scorer = scorer;
-        moves = Lists.newArrayList();
-        scores = Maps.newHashMap();
-        store = new Store();
-        pegs = new IntVar[NUM_POSITIONS];
-        for (int pos = 0; pos < pegs.length; pos++) {
-            pegs[pos] = new IntVar(store, "peg" + pos, 0, 5);
-        }
-        List<Move> staticMoves = Lists.newArrayList(
-            new Move(0, 1, 2, 3),
-            new Move(2, 3, 4, 5)
-        );
+        start(scorer);
+        List<Move> staticMoves = openingMoves();
         int moveCount = 0;
-        while (moveCount < MAX_MOVES - 1) {
-            if (moveCount < staticMoves.size()) {
-                makeMove(staticMoves.get(moveCount));
-            } else {
-                makeMove(search());
-            }
+        while (moveCount < variant.getMaxMoves() - 1) {
+            makeMove(nextMove(staticMoves));
             moveCount++;
             if (hasWon()) {
                 break;
             }
         }
-        int solutionsCount = countSolutions(true);
+        int solutionsCount = countFinalSolutions();
         if (!hasWon()) {
-            makeMove(search());
-        }
-        List<Score> scoresList = Lists.newArrayList();
-        for (Move move : moves) {
-            scoresList.add(scores.get(move));
+            makeMove(nextMove(staticMoves));
         }
-        return new Result(solutionsCount, hasWon(), moves, scoresList);
+        return finish(solutionsCount);
     }
 
-    private boolean hasWon() {
-        return scores.get(moves.get(moves.size() - 1)).equals(Score.ALL_WHITE);
+    /**
+     * Play a game without blocking while moves are scored. Each move is chosen on the given executor when the
+     * previous move's score arrives, so a small pool of threads can play any number of games at once.
+     *
+     * @return a future that completes with the result of the game, or fails if scoring fails
+     */
+    public ListenableFuture<Result> playAsync(AsyncScorer scorer, Executor executor) {
+        start(null);
+        AsyncPlay play = new AsyncPlay(scorer, executor);
+        executor.execute(play);
+        return play.result;
     }
 
     /**
-     * Find the first solution and return it.
+     * The moves of {@link #play(Scorer)} as a state machine, which is advanced each time a score arrives.
      */
-    private Move search() {
-        Search<IntVar> search = new DepthFirstSearch<IntVar>();
-        SelectChoicePoint<IntVar> select =
-                new InputOrderSelect<IntVar>(store, pegs,
-                        new IndomainMin<IntVar>());
-
-        search.setAssignSolution(false); // don't assign variables after finding a solution, http://sourceforge.net/p/jacop-solver/discussion/1220992/thread/4caf2979/
-        search.getSolutionListener().searchAll(true);
-        search.getSolutionListener().recordSolutions(true);
-        search.setPrintInfo(false);
-
-        boolean result = search.labeling(store, select);
-        if (!result) {
-            throw new IllegalStateException("No solutions found for " + this);
+    private class AsyncPlay implements Runnable, FutureCallback<Score> {
+        private final AsyncScorer scorer;
+        private final Executor executor;
+        private final List<Move> staticMoves = openingMoves();
+        private final SettableFuture<Result> result = SettableFuture.create();
+        private int solutionsCount = -1;
+        private Move move;
+
+        AsyncPlay(AsyncScorer scorer, Executor executor) {
+            this.scorer = scorer;
+            this.executor = executor;
         }
 
-        Move move = null;
-        int numberOfSolutions = search.getSolutionListener().solutionsNo();
-        for (int i = 1; i <= numberOfSolutions; i++) {
-            List<Move.Peg> solution = Lists.newArrayList();
-            Domain[] sol = search.getSolutionListener().getSolution(i);
-            for (Domain d : sol) {
-                solution.add(Move.Peg.values()[d.valueEnumeration().nextElement()]); // convert domain to int
-            }
-            move = new Move(solution);
-            if (moves.contains(move)) {
-                continue;
+        /**
+         * Make the next move, or finish the game.
+         */
+        @Override
+        public void run() {
+            try {
+                if ((!moves.isEmpty() && hasWon()) || moves.size() == variant.getMaxMoves()) {
+                    if (solutionsCount < 0) {
+                        solutionsCount = countFinalSolutions();
+                    }
+                    result.set(finish(solutionsCount));
+                    return;
+                }
+                if (moves.size() == variant.getMaxMoves() - 1) {
+                    solutionsCount = countFinalSolutions();
+                }
+                move = nextMove(staticMoves);
+                speculate(move, staticMoves);
+                Futures.addCallback(scorer.scoreAsync(move), this, executor);
+            } catch (RuntimeException e) {
+                result.setException(e);
             }
-            break;
         }
-        return move;
-    }
 
-    /**
-     * Return the number of possible solutions at this point in the game.
-     */
-    private int countSolutions(boolean verbose) {
-        Search<IntVar> search = new DepthFirstSearch<IntVar>();
-        SelectChoicePoint<IntVar> select =
-                new InputOrderSelect<IntVar>(store, pegs,
-                        new IndomainMin<IntVar>());
-
-        search.setAssignSolution(false);
-        search.getSolutionListener().searchAll(true);
-        search.getSolutionListener().recordSolutions(true);
-        search.setPrintInfo(false);
-
-        boolean result = search.labeling(store, select);
-        if (!result) {
-            throw new IllegalStateException("No solutions found for " + this);
+        @Override
+        public void onSuccess(Score score) {
+            try {
+                addMove(move, score);
+            } catch (RuntimeException e) {
+                result.setException(e);
+                return;
+            }
+            run();
         }
-        int numberOfSolutions = search.getSolutionListener().solutionsNo();
-        if (numberOfSolutions == REPORT_NUM_SOLUTIONS && verbose) {
-            reportGame(search);
+
+        @Override
+        public void onFailure(Throwable t) {
+            result.setException(t);
         }
-        return numberOfSolutions;
     }
 
-    private void reportGame(Search<IntVar> search) {
-        System.out.println("Report: " + this);
+    private Result finish(int solutionsCount) {
+        List<Score> scoresList = Lists.newArrayList();
         for (Move move : moves) {
-            System.out.println(move + "; " + scores.get(move));
+            scoresList.add(scores.get(move));
+        }
+        Result result = new Result(solutionsCount, solutionsCountEstimated, hasWon(), moves, scoresList,
+                movesOverBudget);
+        metrics.gameFinished(result);
+        if (log != null) {
+            try {
+                log.append(result);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
         }
-        search.printAllSolutions();
+        return result;
     }
 
     /**
-     * Make the given move, and return the number of solutions.
+     * Set up a new game, with no moves made.
      */
-    private int makeMove(Move move) {
-        moves.add(move);
-
-        Score score = scorer.score(move);
-        scores.put(move, score);
-
-        impose(scoreConstraint(move, score));
-
-        // This is not needed to improve the game performance - see README
-        /*
-        if (moves.size() > 1) {
-            for (Move previousMove : moves) {
-                imposeDiffConstraints(previousMove, move);
-            }
+    void start(Scorer scorer) {
+        this.scorer = scorer;
+        moves = Lists.newArrayList();
+        if (scores == null) {
+            scores = Maps.newHashMap();
+        } else {
+            scores.clear();
         }
-        */
-        return countSolutions(false);
+        if (solver != null && solverEngine == engine && solver.getVariant().equals(variant)) {
+            solver.reset();
+            configure(solver);
+        } else {
+            solver = null;
+        }
+        movesOverBudget = Lists.newArrayList();
+        solutionsCountEstimated = false;
+        lastNodes = 0;
+        lastWrongDecisions = 0;
+        chooseNanos = 0;
+        speculation = null;
+        speculatedMove = null;
+        node = decisionTree != null && decisionTree.isFor(variant, strategy, searchOrder()) ? decisionTree.getRoot()
+                : DecisionTree.NONE;
     }
 
     /**
-     * Impose a constraint.
+     * The heuristic whose order the solver finds solutions in. Only the JaCoP engines search, and the others find
+     * solutions in code order.
      */
-    protected void impose(PrimitiveConstraint constraint) {
-        store.impose(constraint);
+    private JaCoPSolver.Heuristic searchOrder() {
+        return engine == Engine.JACOP || engine == Engine.JACOP_SCORE_CONSTRAINT ? heuristic
+                : JaCoPSolver.Heuristic.INPUT_ORDER;
+    }
+
+    private List<Move> openingMoves() {
+        if (openingMoves == null) {
+            openingMoves = strategy.getOpeningMoves(variant);
+        }
+        return openingMoves;
     }
 
     /**
-     * Colour appears in given position
+     * Create the solver for a new game. A game that is played more than once reuses its solver, resetting it
+     * between games, as long as the engine and variant haven't changed.
      */
-    private PrimitiveConstraint whiteConstraint(Move.Peg colour, int pos) {
-        return new XeqC(pegs[pos], colour.ordinal());
+    protected Solver createSolver() {
+        return configure(engine.newSolver(variant));
+    }
+
+    private Solver configure(Solver solver) {
+        if (solver instanceof JaCoPSolver) {
+            ((JaCoPSolver) solver).setHeuristic(heuristic, heuristicSeed);
+        }
+        return solver;
     }
 
     /**
-     * Colour does not appear in given position but does appear in another position
+     * Return the solver, creating it and replaying the moves so far if this is its first use. Games played from a
+     * decision tree don't need one unless they leave the tree.
      */
-    private PrimitiveConstraint redConstraint(Move.Peg colour, int pos) {
-        return redConstraint(colour, pos, ALL_POS);
+    private Solver solver() {
+        if (solver == null) {
+            solver = createSolver();
+            solverEngine = engine;
+            for (Move move : moves) {
+                solver.add(move, scores.get(move));
+            }
+        }
+        return solver;
+    }
+
+    private boolean hasWon() {
+        return scores.get(moves.get(moves.size() - 1)).isAllWhite();
+    }
+
+    private Move nextMove(List<Move> staticMoves) {
+        if (metrics == GameMetrics.NONE) {
+            return chooseMove(staticMoves);
+        }
+        long start = System.nanoTime();
+        Move move = chooseMove(staticMoves);
+        chooseNanos = System.nanoTime() - start;
+        return move;
+    }
+
+    private Move chooseMove(List<Move> staticMoves) {
+        if (speculatedMove != null) {
+            Move move = speculatedMove;
+            speculatedMove = null;
+            return move;
+        } else if (node != DecisionTree.NONE) {
+            return ScoreTable.get(variant).getMove(decisionTree.getMove(node));
+        } else if (moves.size() < staticMoves.size()) {
+            return staticMoves.get(moves.size());
+        }
+        return search();
     }
 
     /**
-     * Colour does not appear in given position but does appear in another position (restricted from full set of positions)
+     * Choose the next move using the strategy.
      */
-    private PrimitiveConstraint redConstraint(Move.Peg colour, int pos, Set<Integer> possiblePos) {
-        ArrayList<PrimitiveConstraint> constraints = Lists.newArrayList();
-        for (int p : possiblePos) {
-            if (p == pos) {
-                continue;
+    Move search() {
+        Solver solver = solver();
+        if (moveBudgetNanos == 0) {
+            solver.setDeadline(Long.MAX_VALUE);
+            return strategy.nextMove(solver, moves);
+        }
+        long deadline = System.nanoTime() + moveBudgetNanos;
+        solver.setDeadline(deadline);
+        try {
+            Move move = strategy.nextMove(solver, moves);
+            if (solver.hitDeadline() || System.nanoTime() > deadline) {
+                movesOverBudget.add(moves.size() + 1);
             }
-            constraints.add(new XeqC(pegs[p], colour.ordinal()));
+            return move;
+        } finally {
+            solver.setDeadline(Long.MAX_VALUE);
         }
-        return new And(noneConstraint(colour, pos), new Or(constraints));
     }
 
     /**
-     * Colour does not appear in given position
+     * Count the solutions for the result, which is done before the last move (or after the winning one).
      */
-    private PrimitiveConstraint noneConstraint(Move.Peg colour, int pos) {
-        return new Not(new XeqC(pegs[pos], colour.ordinal()));
+    private int countFinalSolutions() {
+        int count = countSolutions();
+        solutionsCountEstimated = lastCountEstimated;
+        return count;
     }
 
     /**
-     * Colour does not appear in any position
+     * Return the number of possible solutions at this point in the game.
      */
-    private PrimitiveConstraint noneConstraint(Move.Peg colour) {
-        ArrayList<PrimitiveConstraint> constraints = Lists.newArrayList();
-        for (int pos : ALL_POS) {
-            constraints.add(noneConstraint(colour, pos));
+    int countSolutions() {
+        lastCountEstimated = false;
+        if (node != DecisionTree.NONE) {
+            return decisionTree.getSolutionsCount(node);
+        } else if (solver == null && hasWon()) {
+            return 1;
+        }
+        Solver solver = solver();
+        if (moveBudgetNanos == 0) {
+            solver.setDeadline(Long.MAX_VALUE);
+            return solver.countSolutions();
+        }
+        solver.setDeadline(System.nanoTime() + moveBudgetNanos);
+        try {
+            int count = solver.countSolutions();
+            lastCountEstimated = solver.hitDeadline();
+            return count;
+        } finally {
+            solver.setDeadline(Long.MAX_VALUE);
         }
-        return new And(constraints);
     }
 
     /**
-     * A constraint for a normal move.
+     * Make the given move.
      */
-    private PrimitiveConstraint scoreConstraint(Move move, Score score) {
-        // if no whites or reds then none of the colours appear anywhere
-        if (score.count(NONE) == NUM_POSITIONS) {
-            ArrayList<PrimitiveConstraint> constraints = Lists.newArrayList();
-            for (int pos : ALL_POS) {
-                constraints.add(noneConstraint(move.get(pos)));
-            }
-            return new And(constraints);
-        }
-        ArrayList<PrimitiveConstraint> constraints = Lists.newArrayList();
-        for (List<Score.Peg> combo : score.permutations()) {
-            ArrayList<PrimitiveConstraint> moveConstraints = Lists.newArrayList();
-            Set<Integer> possibleRedPos = Sets.newLinkedHashSet(Lists.newArrayList(0, 1, 2, 3));
-            int offset = 0;
-            for (int pos : ALL_POS) {
-                Score.Peg s = combo.get(offset);
-                Move.Peg col = move.get(pos);
-                if (s.equals(WHITE)) {
-                    moveConstraints.add(whiteConstraint(col, pos));
-                    possibleRedPos.remove(pos); // red can't actually appear where white does
-                } else if (s.equals(NONE)) {
-                    if (move.hasDistinctColours()) {
-                        // if move's colours are all different then col doesn't appear anywhere
-                        moveConstraints.add(noneConstraint(col));
-                    } else {
-                        moveConstraints.add(noneConstraint(col, pos));
-                    }
-                }
-                offset++;
-            }
-            offset = 0;
-            for (int pos : ALL_POS) {
-                Score.Peg s = combo.get(offset);
-                if (s.equals(RED)) {
-                    moveConstraints.add(redConstraint(move.get(pos), pos, possibleRedPos));
-                }
-                offset++;
-            }
-            constraints.add(new And(moveConstraints));
-        }
-        return new Or(constraints);
+    void makeMove(Move move) {
+        speculate(move, openingMoves());
+        addMove(move, scorer.score(move));
     }
 
-    private void imposeDiffConstraints(Move move1, Move move2) {
-        Set<Integer> diff = move1.diff(move2);
-        if (VERBOSE) {
-            System.out.println(this);
-            System.out.println(move1 + "; " + scores.get(move1));
-            System.out.println(move2 + "; " + scores.get(move2));
+    /**
+     * Start speculating on the score for a move, if it's worth it: the move after it has to be chosen by the
+     * strategy, and not from a decision tree or the opening moves.
+     */
+    private void speculate(Move move, List<Move> staticMoves) {
+        if (speculationExecutor == null || node != DecisionTree.NONE || !ScoreTable.get(variant).isPrecomputed()
+                || moves.size() + 1 < staticMoves.size() || moves.size() + 1 >= variant.getMaxMoves()) {
+            return;
         }
-        if (diff.size() == 1) {
-            imposeDiff1Constraints(move1, move2, diff);
-        } else if (diff.size() == 2) {
-            // gives a slight improvement, but not strictly needed
-            imposeDiff2Constraints(move1, move2, diff);
+        List<Score> scoresList = Lists.newArrayList();
+        for (Move m : moves) {
+            scoresList.add(scores.get(m));
         }
-    }
-    private void imposeDiff1Constraints(Move move1, Move move2, Set<Integer> diff) {
-        int diffPos = Iterables.getOnlyElement(diff);
-        
-        Score score1 = scores.get(move1);
-        Score score2 = scores.get(move2);
-
-        int rd = score2.count(RED) - score1.count(RED);
-        int wd = score2.count(WHITE) - score1.count(WHITE);
-        Move.Peg oldCol = move1.get(diffPos);
-        Move.Peg newCol = move2.get(diffPos);
-        if (wd == 0) {
-            impose(noneConstraint(oldCol, diffPos)); // oldCol does not appear in diffPos
-            impose(noneConstraint(newCol, diffPos)); // newCol does not appear in diffPos
-            if (rd == 1) {
-                impose(redConstraint(newCol, diffPos));
-                impose(noneConstraint(oldCol));
-            } else if (rd == -1) {
-                impose(redConstraint(oldCol, diffPos));
-                impose(noneConstraint(newCol));
-            }
-        } else if (wd == 1) {
-            impose(whiteConstraint(newCol, diffPos));
-            impose(noneConstraint(oldCol, diffPos));
-            if (move1.hasDistinctColours() && move2.hasDistinctColours()) {
-                if (rd == 0) {
-                    impose(noneConstraint(oldCol));
-                } else if (rd == -1) {
-                    impose(redConstraint(oldCol, diffPos));
-                }
+        speculation = new Speculation(speculationExecutor, new Speculation.SolverFactory() {
+            @Override
+            public Solver newSolver() {
+                return createSolver();
             }
-        } else if (wd == -1) {
-            impose(whiteConstraint(oldCol, diffPos));
-            impose(noneConstraint(newCol, diffPos));
-            if (move1.hasDistinctColours() && move2.hasDistinctColours()) {
-                if (rd == 0) {
-                    impose(noneConstraint(newCol));
-                } else if (rd == 1) {
-                    impose(redConstraint(newCol, diffPos));
-                }
-            }
-        }
+        }, strategy, moves, scoresList, move, solver().candidates(), moveBudgetNanos);
     }
 
-    private void imposeDiff2Constraints(Move move1, Move move2, Set<Integer> diff) {
-        Score score1 = scores.get(move1);
-        Score score2 = scores.get(move2);
-
-        int rc1 = score1.count(RED);
-        int rc2 = score2.count(RED);
-        int wd = score2.count(WHITE) - score1.count(WHITE);
-        // if number of whites changes (with no reds), then we know that two non-white pegs don't appear in either of the
-        // two non-white positions
-        // e.g. for the following we know that 5 and 3 don't appear in positions 1 and 3
-        // [4, 5, 2, 3]; [WHITE x 2, NONE x 2]
-        // [4, 0, 2, 0]; [WHITE x 3, NONE]
-        if (rc1 == 0 && rc2 == 0) {
-            if (wd > 0) {
-                for (int i : diff) {
-                    Move.Peg col = move1.get(i);
-                    for (int j : diff) {
-                        impose(noneConstraint(col, j));
-                    }
-                }
-            } else if (wd < 0) {
-                for (int i : diff) {
-                    Move.Peg col = move2.get(i);
-                    for (int j : diff) {
-                        impose(noneConstraint(col, j));
-                    }
-                }
+    /**
+     * Add a move that has been scored.
+     */
+    private void addMove(Move move, Score score) {
+        moves.add(move);
+        scores.put(move, score);
+
+        if (node != DecisionTree.NONE) {
+            node = decisionTree.getChild(node, score.id());
+        }
+        long start = metrics == GameMetrics.NONE ? 0 : System.nanoTime();
+        Speculation.Branch branch = speculation == null ? null : speculation.take(score);
+        speculation = null;
+        if (branch != null) {
+            solver = branch.solver;
+            speculatedMove = branch.nextMove;
+            if (branch.overBudget) {
+                movesOverBudget.add(moves.size() + 1);
             }
+            lastNodes = 0;
+            lastWrongDecisions = 0;
+        } else if (solver != null) {
+            solver.add(move, score);
+        } else if (metrics != GameMetrics.NONE && node == DecisionTree.NONE) {
+            solver(); // replays this move along with the others, so it's timed as adding constraints
         }
+        if (metrics == GameMetrics.NONE) {
+            return;
+        }
+        long added = System.nanoTime();
+        int candidates = countSolutions();
+        long counted = System.nanoTime();
+        long nodes = solver == null ? 0 : solver.getNodes();
+        long wrongDecisions = solver == null ? 0 : solver.getWrongDecisions();
+        metrics.moveMade(moves.size(), candidates, nodes - lastNodes, wrongDecisions - lastWrongDecisions,
+                added - start, chooseNanos + counted - added);
+        lastNodes = nodes;
+        lastWrongDecisions = wrongDecisions;
+        chooseNanos = 0;
     }
 
+    /**
+     * Play a game against a human. An optional argument gives the variant, e.g. 5x8. If the system property
+     * <code>mastermind.tree</code> names a decision tree file built by {@link DecisionTreeBuilder}, moves are played
+     * from it.
+     */
     @SuppressWarnings("ResultOfMethodCallIgnored")
     public static void main(String[] args) throws IOException {
+        Variant variant = args.length > 0 ? Variant.parse(args[0]) : Variant.STANDARD;
         System.out.println("MASTERMIND");
         System.out.println("**********");
-        System.out.println("Choose a secret combination of four pegs, then press enter. It's helpful to play along with a real set.");
+        System.out.println("Choose a secret combination of " + variant.getNumPositions() + " pegs from the first "
+                + variant.getNumColours() + " of " + Arrays.toString(Move.Peg.values()).toLowerCase()
+                + ", then press enter. It's helpful to play along with a real set.");
         System.in.read();
-        System.out.println("OK. I will try to deduce the four pegs you have chosen.");
+        System.out.println("OK. I will try to deduce the " + variant.getNumPositions() + " pegs you have chosen.");
 
-        Scorer scorer = new HumanScorer();
+        Scorer scorer = new HumanScorer(variant);
         Game game = new Game();
+        game.setVariant(variant);
+        game.setSpeculationExecutor(MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(
+                Runtime.getRuntime().availableProcessors(),
+                new ThreadFactoryBuilder().setNameFormat("speculation-%d").setDaemon(true).build())));
+        if (variant.getNumCodes() > ScoreTable.MAX_TABLE_CODES) {
+            game.setEngine(Engine.SEQUENTIAL);
+        }
+        Long budget = Long.getLong("mastermind.budget");
+        if (budget != null) {
+            game.setMoveBudget(budget, TimeUnit.MILLISECONDS);
+        }
+        String tree = System.getProperty("mastermind.tree");
+        if (tree != null) {
+            game.setDecisionTree(DecisionTree.load(new File(tree), variant, game.getStrategy(), game.searchOrder()));
+        }
         Result result = game.play(scorer);
         if (result.hasWon()) {
             System.out.println("I won! Thanks for playing.");
@@ -0,0 +1,84 @@
+package com.tom_e_white.mastermind;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * The format of a binary log of played games, written by {@link GameLogWriter} and read by {@link GameLogReader}.
+ * <pre>
+ * header: int magic, int version, int positions, int colours, int maximum moves
+ * record: byte number of moves (with the top bit set if the game was won),
+ *         varint number of solutions before the last move,
+ *         then per move: the move's code and its score's id packed into {@link #getBytesPerMove()} bytes
+ * </pre>
+ * A move and its score are packed as <code>code &lt;&lt; scoreBits | scoreId</code>, most significant byte first,
+ * which is two bytes for the standard game.
+ */
+public class GameLog {
+
+    static final int MAGIC = 0x4d4d474c; // "MMGL"
+    static final int VERSION = 2;
+    static final int HEADER_SIZE = 20;
+    static final int MAX_MOVES = 0x7f;
+    static final int WON = 0x80;
+
+    private final Variant variant;
+    private final int scoreBits;
+    private final int bytesPerMove;
+
+    GameLog(Variant variant) {
+        this.variant = variant;
+        this.scoreBits = bits(variant.getNumScoreIds() - 1);
+        this.bytesPerMove = (bits(variant.getNumCodes() - 1) + scoreBits + 7) / 8;
+    }
+
+    private static int bits(int max) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(max));
+    }
+
+    public Variant getVariant() {
+        return variant;
+    }
+
+    public int getBytesPerMove() {
+        return bytesPerMove;
+    }
+
+    /**
+     * The most bytes a record can take.
+     */
+    int getMaxRecordSize() {
+        return 1 + 5 + MAX_MOVES * bytesPerMove;
+    }
+
+    long pack(int code, int scoreId) {
+        return ((long) code << scoreBits) | scoreId;
+    }
+
+    int code(long packed) {
+        return (int) (packed >>> scoreBits);
+    }
+
+    int scoreId(long packed) {
+        return (int) (packed & ((1 << scoreBits) - 1));
+    }
+
+    void writeHeader(ByteBuffer buffer) {
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putInt(variant.getNumPositions());
+        buffer.putInt(variant.getNumColours());
+        buffer.putInt(variant.getMaxMoves());
+    }
+
+    static GameLog readHeader(ByteBuffer buffer) throws IOException {
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("Not a game log");
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("Unsupported game log version " + version);
+        }
+        return new GameLog(new Variant(buffer.getInt(), buffer.getInt(), buffer.getInt()));
+    }
+}
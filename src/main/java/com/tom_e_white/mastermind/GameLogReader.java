@@ -0,0 +1,168 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.SortedMultiset;
+import com.google.common.collect.TreeMultiset;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Reads the games in a {@link GameLog} file one at a time, like a cursor: {@link #next()} moves to the next game,
+ * whose moves and scores can then be read without allocating. The file is memory-mapped a window at a time, so
+ * logs of any size can be streamed through without being read into memory.
+ */
+public class GameLogReader implements Closeable {
+
+    private static final long WINDOW_SIZE = 256 * 1024 * 1024;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long size;
+    private final GameLog log;
+    private final ScoreTable table;
+    private MappedByteBuffer buffer;
+    private long bufferStart;
+    private long[] packedMoves = new long[16];
+    private int numMoves;
+    private boolean won;
+    private int solutionsCount;
+
+    public GameLogReader(File file) throws IOException {
+        this.file = new RandomAccessFile(file, "r");
+        this.channel = this.file.getChannel();
+        this.size = channel.size();
+        try {
+            map(0);
+            this.log = GameLog.readHeader(buffer);
+        } catch (IOException e) {
+            this.file.close();
+            throw e;
+        }
+        this.table = ScoreTable.get(log.getVariant());
+    }
+
+    static Variant readVariant(File file) throws IOException {
+        GameLogReader reader = new GameLogReader(file);
+        try {
+            return reader.getVariant();
+        } finally {
+            reader.close();
+        }
+    }
+
+    private void map(long start) throws IOException {
+        bufferStart = start;
+        buffer = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(WINDOW_SIZE, size - start));
+    }
+
+    public Variant getVariant() {
+        return log.getVariant();
+    }
+
+    /**
+     * Move to the next game.
+     *
+     * @return false if there are no more games
+     */
+    public boolean next() throws IOException {
+        if (buffer.remaining() < log.getMaxRecordSize() && bufferStart + buffer.limit() < size) {
+            map(bufferStart + buffer.position()); // the next record may cross the end of the window
+        }
+        if (!buffer.hasRemaining()) {
+            return false;
+        }
+        int header = buffer.get() & 0xff;
+        numMoves = header & GameLog.MAX_MOVES;
+        won = (header & GameLog.WON) != 0;
+        solutionsCount = 0;
+        for (int shift = 0; ; shift += 7) {
+            int b = buffer.get();
+            solutionsCount |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                break;
+            }
+        }
+        if (packedMoves.length < numMoves) {
+            packedMoves = new long[numMoves];
+        }
+        int bytesPerMove = log.getBytesPerMove();
+        for (int i = 0; i < numMoves; i++) {
+            long packed = 0;
+            for (int b = 0; b < bytesPerMove; b++) {
+                packed = (packed << 8) | (buffer.get() & 0xff);
+            }
+            packedMoves[i] = packed;
+        }
+        return true;
+    }
+
+    public int getNumMoves() {
+        return numMoves;
+    }
+
+    public boolean hasWon() {
+        return won;
+    }
+
+    public int getSolutionsCount() {
+        return solutionsCount;
+    }
+
+    public int getMoveCode(int i) {
+        return log.code(packedMoves[i]);
+    }
+
+    public int getScoreId(int i) {
+        return log.scoreId(packedMoves[i]);
+    }
+
+    /**
+     * Return the current game as a {@link Result}.
+     */
+    public Result getResult() {
+        List<Move> moves = Lists.newArrayListWithCapacity(numMoves);
+        List<Score> scores = Lists.newArrayListWithCapacity(numMoves);
+        for (int i = 0; i < numMoves; i++) {
+            moves.add(table.getMove(getMoveCode(i)));
+            scores.add(table.getScore(getScoreId(i)));
+        }
+        return new Result(solutionsCount, won, moves, scores);
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+
+    /**
+     * Print a histogram of the number of moves in each game in the log given as an argument.
+     */
+    public static void main(String[] args) throws IOException {
+        GameLogReader reader = new GameLogReader(new File(args[0]));
+        try {
+            SortedMultiset<Integer> moves = TreeMultiset.create();
+            long games = 0;
+            long lost = 0;
+            long totalMoves = 0;
+            while (reader.next()) {
+                games++;
+                totalMoves += reader.getNumMoves();
+                moves.add(reader.getNumMoves());
+                if (!reader.hasWon()) {
+                    lost++;
+                }
+            }
+            System.out.println(reader.getVariant() + " games: " + games + ", lost: " + lost);
+            System.out.println("Moves: " + moves);
+            System.out.println("Avg moves: " + (double) totalMoves / games);
+        } finally {
+            reader.close();
+        }
+    }
+}
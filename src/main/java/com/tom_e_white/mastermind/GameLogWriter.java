@@ -0,0 +1,113 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.base.Preconditions;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.Flushable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.List;
+
+/**
+ * Appends played games to a binary {@link GameLog} file. Games are encoded into a buffer, which is written to the
+ * file in one go when it fills up, or when the writer is flushed or closed. A writer can be shared by games played on
+ * different threads.
+ *
+ * See {@link Game#setLog(GameLogWriter)}.
+ */
+public class GameLogWriter implements Closeable, Flushable {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final GameLog log;
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long games;
+
+    /**
+     * Open a log for appending. If the file is new or empty a header is written, otherwise it must be a log for the
+     * same variant.
+     */
+    public GameLogWriter(File file, Variant variant) throws IOException {
+        this.log = new GameLog(variant);
+        this.channel = new FileOutputStream(file, true).getChannel();
+        if (channel.size() == 0) {
+            log.writeHeader(buffer);
+        } else {
+            Variant existing;
+            try {
+                existing = GameLogReader.readVariant(file);
+            } catch (IOException e) {
+                channel.close();
+                throw e;
+            }
+            if (!existing.equals(variant)) {
+                channel.close();
+                throw new IOException("Log " + file + " is for " + existing + " games, not " + variant);
+            }
+        }
+    }
+
+    public Variant getVariant() {
+        return log.getVariant();
+    }
+
+    /**
+     * The number of games appended by this writer.
+     */
+    public synchronized long getGames() {
+        return games;
+    }
+
+    /**
+     * Append a game. It is written to the file when the buffer is next written.
+     */
+    public synchronized void append(Result result) throws IOException {
+        List<Move> moves = result.getMoves();
+        List<Score> scores = result.getScores();
+        Preconditions.checkArgument(moves.size() <= GameLog.MAX_MOVES, "Too many moves to log: %s", moves.size());
+        if (buffer.remaining() < log.getMaxRecordSize()) {
+            writeBuffer();
+        }
+        buffer.put((byte) (moves.size() | (result.hasWon() ? GameLog.WON : 0)));
+        int solutionsCount = result.getSolutionsCount();
+        while ((solutionsCount & ~0x7f) != 0) {
+            buffer.put((byte) ((solutionsCount & 0x7f) | 0x80));
+            solutionsCount >>>= 7;
+        }
+        buffer.put((byte) solutionsCount);
+        int bytesPerMove = log.getBytesPerMove();
+        for (int i = 0; i < moves.size(); i++) {
+            long packed = log.pack(moves.get(i).code(), scores.get(i).id());
+            for (int b = bytesPerMove - 1; b >= 0; b--) {
+                buffer.put((byte) (packed >>> (b << 3)));
+            }
+        }
+        games++;
+    }
+
+    private void writeBuffer() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    @Override
+    public synchronized void flush() throws IOException {
+        writeBuffer();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        try {
+            writeBuffer();
+        } finally {
+            channel.close();
+        }
+    }
+}
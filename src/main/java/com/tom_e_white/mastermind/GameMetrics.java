@@ -0,0 +1,40 @@
+package com.tom_e_white.mastermind;
+
+/**
+ * Receives measurements from a {@link Game} as it is played, move by move. Implementations may be shared by games
+ * played on different threads, so must be thread safe.
+ *
+ * Measuring a game means counting the solutions after every move, which the game otherwise only does before the
+ * last move. For {@link #NONE}, the default, nothing is measured.
+ */
+public interface GameMetrics {
+
+    /**
+     * Called after each move has been scored and added to the solver.
+     *
+     * @param moveNumber the number of the move, starting from one
+     * @param candidates the number of solutions left after the move
+     * @param nodes the number of search nodes visited since the last move
+     * @param wrongDecisions the number of wrong decisions made in search since the last move
+     * @param constraintNanos the time taken to add the move and its score to the solver
+     * @param searchNanos the time taken to choose the move, plus the time taken to find the solutions after it
+     */
+    void moveMade(int moveNumber, int candidates, long nodes, long wrongDecisions, long constraintNanos,
+                  long searchNanos);
+
+    /**
+     * Called when a game is over.
+     */
+    void gameFinished(Result result);
+
+    GameMetrics NONE = new GameMetrics() {
+        @Override
+        public void moveMade(int moveNumber, int candidates, long nodes, long wrongDecisions, long constraintNanos,
+                             long searchNanos) {
+        }
+
+        @Override
+        public void gameFinished(Result result) {
+        }
+    };
+}
@@ -0,0 +1,73 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.collect.Lists;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Plays many games at once in a {@link GameSessionManager}, against random secrets scored by
+ * {@link ComputerScorer}s, and reports how many sessions were completed per second and the latency of the computer's
+ * moves.
+ */
+public class GameSessionLoadDriver {
+
+    /**
+     * Arguments: the number of sessions (default 10000), then optionally the engine (default BITSET), the solver
+     * memory cap in megabytes (default 64) and the variant (e.g. 4x6).
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int numSessions = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        Game.Engine engine = args.length > 1 ? Game.Engine.valueOf(args[1]) : Game.Engine.BITSET;
+        long maxSolverBytes = (args.length > 2 ? Long.parseLong(args[2]) : 64) * 1024 * 1024;
+        Variant variant = args.length > 3 ? Variant.parse(args[3]) : Variant.STANDARD;
+
+        MoveStatistics metrics = new MoveStatistics();
+        Statistics statistics = new Statistics();
+        ScoreTable table = ScoreTable.get(variant);
+        Random random = new Random(42);
+        GameSessionManager manager = new GameSessionManager(maxSolverBytes, 10, TimeUnit.SECONDS);
+        List<GameSessionManager.Session> sessions = Lists.newArrayListWithCapacity(numSessions);
+        int rejected = 0;
+        long start = System.nanoTime();
+        try {
+            for (int i = 0; i < numSessions; i++) {
+                Game game = new Game();
+                game.setVariant(variant);
+                game.setEngine(engine);
+                game.setMetrics(metrics);
+                Scorer scorer = new ComputerScorer(table.getMove(random.nextInt(variant.getNumCodes())));
+                while (true) {
+                    try {
+                        sessions.add(manager.open(game, scorer));
+                        break;
+                    } catch (RejectedExecutionException e) {
+                        rejected++; // at the memory cap, so wait for some sessions to finish
+                        Thread.sleep(1);
+                    }
+                }
+            }
+            for (GameSessionManager.Session session : sessions) {
+                try {
+                    statistics.add(session.getResult());
+                } catch (CancellationException e) {
+                    System.err.println("Session " + session.getId() + " was evicted");
+                } catch (ExecutionException e) {
+                    System.err.println("Session " + session.getId() + " failed: " + e.getCause());
+                }
+            }
+        } finally {
+            manager.close();
+        }
+        long elapsed = System.nanoTime() - start;
+        System.out.printf("%d sessions in %dms: %.0f sessions/s (%d opens rejected at the memory cap)%n",
+                statistics.getGames(), elapsed / 1000000, statistics.getGames() / (elapsed / 1e9), rejected);
+        System.out.printf("Move latency: p50 <%.1fus, p99 <%.1fus%n", metrics.getMoveNanosPercentile(0.5) / 1000.0,
+                metrics.getMoveNanosPercentile(0.99) / 1000.0);
+        System.out.println("Avg moves: " + statistics.getAverageMoves() + ", lost: " + statistics.getNumLost());
+    }
+}
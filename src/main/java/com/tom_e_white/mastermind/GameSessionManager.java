@@ -0,0 +1,307 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+import com.google.common.collect.Lists;
+
+import java.io.Closeable;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Hosts many games at once, each in a session with its own {@link Scorer}. A game blocks in its scorer while
+ * waiting for a move to be scored, so each session runs on a thread of its own. On Java 21 or later these are
+ * virtual threads, so thousands of sessions waiting on their players cost little more than their games' state;
+ * otherwise they are ordinary threads.
+ *
+ * The manager caps the memory used by the sessions' solvers, using each engine's estimate, and refuses new sessions
+ * that would go over the cap. Sessions that have been waiting for a move to be scored for longer than the idle
+ * timeout are evicted to make room, and are also evicted periodically in the background.
+ *
+ * A session's memory is counted until its thread is done with the game, not just until the session is cancelled,
+ * since a scorer that doesn't respond to interruption (such as a {@link HumanScorer} reading a line) keeps the game,
+ * and its solver, until it returns. Sessions evicted to make room are given a short time to finish.
+ */
+public class GameSessionManager implements Closeable {
+
+    /**
+     * A game being played in the manager.
+     */
+    public class Session {
+        private final long id;
+        private final Game game;
+        private final Scorer scorer;
+        private final long solverBytes;
+        private volatile long waitingSince;
+        private volatile boolean evicted;
+        private final AtomicBoolean released = new AtomicBoolean();
+        private final CountDownLatch exited = new CountDownLatch(1);
+        private final FutureTask<Result> future;
+
+        Session(long id, final Game game, Scorer scorer, long solverBytes) {
+            this.id = id;
+            this.game = game;
+            this.scorer = scorer;
+            this.solverBytes = solverBytes;
+            this.future = new FutureTask<Result>(new Callable<Result>() {
+                @Override
+                public Result call() {
+                    return game.play(sessionScorer);
+                }
+            }) {
+                @Override
+                protected void done() {
+                    sessions.remove(Session.this.id);
+                }
+            };
+        }
+
+        /**
+         * Play the game on the session's thread, then release the session's memory. If the session is cancelled before
+         * it starts the game isn't played, but the memory is still released here.
+         */
+        private final Runnable task = new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    future.run();
+                } finally {
+                    release();
+                }
+            }
+        };
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                solverBytesInUse.addAndGet(-solverBytes);
+                exited.countDown();
+            }
+        }
+
+        public long getId() {
+            return id;
+        }
+
+        public Game getGame() {
+            return game;
+        }
+
+        public boolean isDone() {
+            return future.isDone();
+        }
+
+        public boolean isEvicted() {
+            return evicted;
+        }
+
+        /**
+         * Wait for the game to finish and return its result.
+         *
+         * @throws CancellationException if the session was evicted or cancelled
+         */
+        public Result getResult() throws InterruptedException, ExecutionException {
+            return future.get();
+        }
+
+        /**
+         * End the session without waiting for the game to finish. Its memory is released when its thread is done with
+         * the game, see {@link #awaitRelease(long, TimeUnit)}.
+         */
+        public void cancel() {
+            evicted = true;
+            future.cancel(true);
+        }
+
+        /**
+         * Wait for the session's thread to be done with the game, so that its memory has been released.
+         *
+         * @return whether the memory was released before the timeout
+         */
+        public boolean awaitRelease(long timeout, TimeUnit unit) throws InterruptedException {
+            return exited.await(timeout, unit);
+        }
+
+        boolean isIdle(long now) {
+            long since = waitingSince;
+            return since != 0 && now - since > idleTimeoutNanos;
+        }
+
+        /**
+         * Scores moves using the session's scorer, keeping track of how long it has been waiting.
+         */
+        private final Scorer sessionScorer = new Scorer() {
+            @Override
+            public Score score(Move move) {
+                if (evicted) {
+                    throw new CancellationException("Session " + id + " was evicted");
+                }
+                waitingSince = System.nanoTime();
+                try {
+                    return scorer.score(move);
+                } finally {
+                    waitingSince = 0;
+                }
+            }
+        };
+    }
+
+    /**
+     * How long to give sessions evicted to make room for a new one to finish. A scorer that is interrupted returns at
+     * once, but one that is blocked may not return at all.
+     */
+    private static final long EVICTION_WAIT_MILLIS = 100;
+
+    private final long maxSolverBytes;
+    private final long idleTimeoutNanos;
+    private final ExecutorService executor;
+    private final ScheduledExecutorService evictor;
+    private final ConcurrentMap<Long, Session> sessions = new ConcurrentHashMap<Long, Session>();
+    private final AtomicLong solverBytesInUse = new AtomicLong();
+    private final AtomicLong nextId = new AtomicLong();
+
+    /**
+     * Create a manager.
+     *
+     * @param maxSolverBytes the most memory that the sessions' solvers may use between them, by estimate
+     * @param idleTimeout how long a session may wait for a move to be scored before it may be evicted
+     */
+    public GameSessionManager(long maxSolverBytes, long idleTimeout, TimeUnit unit) {
+        this.maxSolverBytes = maxSolverBytes;
+        this.idleTimeoutNanos = unit.toNanos(idleTimeout);
+        this.executor = newSessionExecutor();
+        this.evictor = Executors.newSingleThreadScheduledExecutor(
+                new ThreadFactoryBuilder().setNameFormat("session-evictor").setDaemon(true).build());
+        long period = Math.max(1, unit.toMillis(idleTimeout) / 2);
+        evictor.scheduleWithFixedDelay(new Runnable() {
+            @Override
+            public void run() {
+                evictIdle();
+            }
+        }, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Use a virtual thread per session if the JVM has them, otherwise a (daemon) thread per session.
+     */
+    private static ExecutorService newSessionExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (Exception e) {
+            return Executors.newCachedThreadPool(
+                    new ThreadFactoryBuilder().setNameFormat("session-%d").setDaemon(true).build());
+        }
+    }
+
+    /**
+     * Start playing a game in a new session.
+     *
+     * @throws RejectedExecutionException if the game's solver would take the sessions over the memory cap, even after
+     * evicting idle sessions
+     */
+    public Session open(Game game, Scorer scorer) {
+        long solverBytes = game.getEngine().estimateSolverBytes(game.getVariant());
+        if (!reserve(solverBytes)) {
+            awaitRelease(evictIdleSessions());
+            if (!reserve(solverBytes)) {
+                throw new RejectedExecutionException("Solver memory cap of " + maxSolverBytes + " bytes reached with "
+                        + sessions.size() + " sessions");
+            }
+        }
+        Session session = new Session(nextId.getAndIncrement(), game, scorer, solverBytes);
+        sessions.put(session.id, session);
+        try {
+            executor.execute(session.task);
+        } catch (RejectedExecutionException e) {
+            sessions.remove(session.id);
+            session.release();
+            throw e;
+        }
+        return session;
+    }
+
+    private void awaitRelease(List<Session> evicted) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(EVICTION_WAIT_MILLIS);
+        try {
+            for (Session session : evicted) {
+                session.awaitRelease(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private boolean reserve(long bytes) {
+        while (true) {
+            long inUse = solverBytesInUse.get();
+            if (inUse + bytes > maxSolverBytes) {
+                return false;
+            }
+            if (solverBytesInUse.compareAndSet(inUse, inUse + bytes)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Return the session with the given id, or null if it has finished or been evicted.
+     */
+    public Session get(long id) {
+        return sessions.get(id);
+    }
+
+    public int getNumSessions() {
+        return sessions.size();
+    }
+
+    public long getSolverBytesInUse() {
+        return solverBytesInUse.get();
+    }
+
+    /**
+     * Evict the sessions that have been waiting for a move to be scored for longer than the idle timeout.
+     *
+     * @return the number of sessions evicted
+     */
+    public int evictIdle() {
+        return evictIdleSessions().size();
+    }
+
+    private List<Session> evictIdleSessions() {
+        long now = System.nanoTime();
+        List<Session> evicted = Lists.newArrayList();
+        for (Session session : sessions.values()) {
+            if (session.isIdle(now)) {
+                session.cancel();
+                evicted.add(session);
+            }
+        }
+        return evicted;
+    }
+
+    /**
+     * End all the sessions.
+     */
+    @Override
+    public void close() {
+        evictor.shutdownNow();
+        for (Session session : sessions.values()) {
+            session.cancel();
+        }
+        for (Runnable neverStarted : executor.shutdownNow()) {
+            neverStarted.run(); // the session is cancelled, so this only releases its memory
+        }
+    }
+}
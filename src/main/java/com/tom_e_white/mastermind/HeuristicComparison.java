@@ -0,0 +1,48 @@
+package com.tom_e_white.mastermind;
+
+/**
+ * Compares the JaCoP search {@link JaCoPSolver.Heuristic heuristics} by playing a game against every secret with
+ * each, reporting the average number of moves, the search nodes per game and the time per game. The games are
+ * played one at a time so that the time per game isn't skewed by contention.
+ */
+public class HeuristicComparison {
+
+    /**
+     * Arguments: optionally the variant (default 4x6), the engine (default JACOP) and the seed for the random value
+     * heuristic (default 42).
+     */
+    public static void main(String[] args) {
+        Variant variant = args.length > 0 ? Variant.parse(args[0]) : Variant.STANDARD;
+        Game.Engine engine = args.length > 1 ? Game.Engine.valueOf(args[1]) : Game.Engine.JACOP;
+        int seed = args.length > 2 ? Integer.parseInt(args[2]) : 42;
+        // a round that isn't reported, so the first heuristic isn't charged for warming up the JIT
+        run(variant, engine, JaCoPSolver.Heuristic.INPUT_ORDER, seed, new MoveStatistics());
+        System.out.printf("%-16s %10s %6s %6s %14s %10s%n", "Heuristic", "Avg moves", "Max", "Lost", "Nodes/game",
+                "ms/game");
+        for (JaCoPSolver.Heuristic heuristic : JaCoPSolver.Heuristic.values()) {
+            MoveStatistics metrics = new MoveStatistics();
+            Statistics statistics = run(variant, engine, heuristic, seed, metrics);
+            System.out.printf("%-16s %10.4f %6d %6d %14.1f %10.3f%n", heuristic, statistics.getAverageMoves(),
+                    statistics.getMovesHistogram().lastEntry().getElement(), statistics.getNumLost(),
+                    (double) metrics.getTotalNodes() / statistics.getGames(),
+                    statistics.getWallTimeNanos() / 1e6 / statistics.getGames());
+        }
+    }
+
+    private static Statistics run(final Variant variant, final Game.Engine engine,
+                                  final JaCoPSolver.Heuristic heuristic, final int seed, final MoveStatistics metrics) {
+        try (Tournament tournament = new Tournament(variant, new Tournament.GameFactory() {
+            @Override
+            public Game newGame() {
+                Game game = new Game();
+                game.setVariant(variant);
+                game.setEngine(engine);
+                game.setHeuristic(heuristic, seed);
+                game.setMetrics(metrics);
+                return game;
+            }
+        }, 1)) {
+            return tournament.run();
+        }
+    }
+}
@@ -1,18 +1,40 @@
 package com.tom_e_white.mastermind;
 
 import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executors;
 
 /**
  * Prompts a human to score moves for when a human is playing the computer.
+ *
+ * When scoring asynchronously, the console is read on a single thread shared by all human scorers, so games waiting
+ * for a human don't each hold a thread.
  */
-public class HumanScorer implements Scorer {
+public class HumanScorer implements Scorer, AsyncScorer {
+
+    private static final ListeningExecutorService CONSOLE = MoreExecutors.listeningDecorator(
+            Executors.newSingleThreadExecutor(
+                    new ThreadFactoryBuilder().setNameFormat("console").setDaemon(true).build()));
 
     private BufferedReader br = new BufferedReader(new InputStreamReader(System.in));
+    private Variant variant;
+
+    public HumanScorer() {
+        this(Variant.STANDARD);
+    }
+
+    public HumanScorer(Variant variant) {
+        this.variant = variant;
+    }
 
     @Override
     public Score score(Move move) {
@@ -32,10 +54,20 @@ public class HumanScorer implements Scorer {
                     pegs.add(Score.Peg.RED);
                 }
             }
-            return new Score(pegs);
+            return new Score(variant, pegs);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
     }
 
+    @Override
+    public ListenableFuture<Score> scoreAsync(final Move move) {
+        return CONSOLE.submit(new Callable<Score>() {
+            @Override
+            public Score call() {
+                return score(move);
+            }
+        });
+    }
+
 }
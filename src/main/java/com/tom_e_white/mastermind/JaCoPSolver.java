@@ -0,0 +1,729 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.collect.*;
+import org.jacop.constraints.*;
+import org.jacop.core.IntVar;
+import org.jacop.core.Store;
+import org.jacop.search.*;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static com.tom_e_white.mastermind.Score.Peg.*;
+
+/**
+ * A solver that turns each move and its score into JaCoP constraints over the pegs, and searches for solutions
+ * that satisfy them. This is the reference solver.
+ */
+public class JaCoPSolver implements Solver {
+
+    /**
+     * How a move and its score are turned into a constraint.
+     */
+    public enum Encoding {
+        /**
+         * A disjunction over the permutations of the score, built from primitive constraints. See
+         * {@link #scoreConstraint(Move, Score)}.
+         */
+        PRIMITIVES,
+        /**
+         * A single {@link ScoreConstraint}, which prunes using the white and red counts directly.
+         */
+        SCORE_CONSTRAINT
+    }
+
+    /**
+     * How the search chooses the next peg to label, and the order it tries its colours in. The order in which
+     * solutions are found depends on this, so {@link #search(List)} (which returns the first one that hasn't been
+     * played) can give a different move, and the game a different number of moves.
+     */
+    public enum Heuristic {
+        /**
+         * Pegs in order, lowest colour first, so solutions are found in code order.
+         */
+        INPUT_ORDER {
+            @Override
+            SelectChoicePoint<IntVar> select(Store store, IntVar[] pegs, int seed) {
+                return new InputOrderSelect<IntVar>(store, pegs, new IndomainMin<IntVar>());
+            }
+        },
+        /**
+         * The peg with the fewest colours left first, breaking ties by the peg in the most constraints.
+         */
+        MOST_CONSTRAINED {
+            @Override
+            SelectChoicePoint<IntVar> select(Store store, IntVar[] pegs, int seed) {
+                return new SimpleSelect<IntVar>(pegs, new SmallestDomain<IntVar>(),
+                        new MostConstrainedDynamic<IntVar>(), new IndomainMin<IntVar>());
+            }
+        },
+        /**
+         * The peg whose constraints have failed most often first.
+         */
+        WEIGHTED_DEGREE {
+            @Override
+            SelectChoicePoint<IntVar> select(Store store, IntVar[] pegs, int seed) {
+                return new SimpleSelect<IntVar>(pegs, new WeightedDegree<IntVar>(), new IndomainMin<IntVar>());
+            }
+
+            @Override
+            boolean usesVariableWeights() {
+                return true;
+            }
+        },
+        /**
+         * Pegs in order, colours in a random order that is the same for every search with the same seed.
+         */
+        RANDOM_VALUE {
+            @Override
+            SelectChoicePoint<IntVar> select(Store store, IntVar[] pegs, int seed) {
+                return new InputOrderSelect<IntVar>(store, pegs, new IndomainRandom<IntVar>(seed));
+            }
+        },
+        /**
+         * Pegs in order, colours from the middle out.
+         */
+        MIDDLE_VALUE {
+            @Override
+            SelectChoicePoint<IntVar> select(Store store, IntVar[] pegs, int seed) {
+                return new InputOrderSelect<IntVar>(store, pegs, new IndomainMiddle<IntVar>());
+            }
+        },
+        /**
+         * Pegs in order, highest colour first.
+         */
+        MAX_VALUE {
+            @Override
+            SelectChoicePoint<IntVar> select(Store store, IntVar[] pegs, int seed) {
+                return new InputOrderSelect<IntVar>(store, pegs, new IndomainMax<IntVar>());
+            }
+        };
+
+        abstract SelectChoicePoint<IntVar> select(Store store, IntVar[] pegs, int seed);
+
+        /**
+         * Whether the store has to keep failure counts for the constraints, which costs time on every failure.
+         */
+        boolean usesVariableWeights() {
+            return false;
+        }
+    }
+
+    /**
+     * The most codes that a search which has run out of time checks against the moves, looking for a solution to
+     * play, before it gives up and searches to the end.
+     */
+    private static final int FALLBACK_SCAN_CODES = 4096;
+
+    /**
+     * The number of moves at the start of each game whose constraints are cached for later games, since they are
+     * usually the strategy's opening moves.
+     */
+    private static final int CACHED_MOVES = 2;
+
+    /**
+     * Whether new solvers use {@link PairwiseInference}, from the <code>mastermind.inference</code> system property.
+     */
+    private static final boolean DEFAULT_PAIRWISE_INFERENCE = Boolean.getBoolean("mastermind.inference");
+
+    private List<Move> moves = Lists.newArrayList();
+    private Map<Move, Score> scores = Maps.newHashMap();
+    private final Variant variant;
+    private final Set<Integer> positions;
+    private final ScoreTable table;
+    private final Encoding encoding;
+    private Store store;
+    protected IntVar[] pegs;
+    private int[] candidates = new int[16];
+    private int numCandidates;
+    private boolean enumerated;
+    private long nodes;
+    private long wrongDecisions;
+    private final int baseLevel;
+    private final CandidateListener candidateListener = new CandidateListener();
+    private final FirstUnplayedListener firstUnplayedListener = new FirstUnplayedListener();
+    private final DeadlineListener deadlineListener = new DeadlineListener();
+    private final Search<IntVar> candidateSearch = newSearch(candidateListener);
+    private final Search<IntVar> firstUnplayedSearch = newSearch(firstUnplayedListener);
+    private final BitSet playedCodes = new BitSet();
+    private final Map<Integer, Constraint> constraintCache = Maps.newHashMap();
+    private PairwiseInference inference;
+    private Heuristic heuristic = Heuristic.INPUT_ORDER;
+    private int seed;
+    private volatile long deadline = Long.MAX_VALUE;
+    private boolean hitDeadline;
+    private final PairwiseInference.Domains domains = new PairwiseInference.Domains() {
+        @Override
+        public boolean remove(int pos, int colour) {
+            if (!pegs[pos].domain.contains(colour)) {
+                return false;
+            }
+            pegs[pos].domain.inComplement(store.level, pegs[pos], colour);
+            return true;
+        }
+
+        @Override
+        public boolean fix(int pos, int colour) {
+            if (pegs[pos].singleton(colour)) {
+                return false;
+            }
+            pegs[pos].domain.in(store.level, pegs[pos], colour, colour);
+            return true;
+        }
+    };
+
+    public JaCoPSolver() {
+        this(Variant.STANDARD);
+    }
+
+    public JaCoPSolver(Variant variant) {
+        this(variant, Encoding.PRIMITIVES);
+    }
+
+    public JaCoPSolver(Variant variant, Encoding encoding) {
+        this.variant = variant;
+        this.encoding = encoding;
+        this.positions = variant.getPositions();
+        this.table = ScoreTable.get(variant);
+        store = new Store();
+        pegs = new IntVar[variant.getNumPositions()];
+        for (int pos = 0; pos < pegs.length; pos++) {
+            pegs[pos] = new IntVar(store, "peg" + pos, 0, variant.getNumColours() - 1);
+        }
+        baseLevel = store.level;
+        setPairwiseInference(DEFAULT_PAIRWISE_INFERENCE);
+    }
+
+    /**
+     * Turn {@link PairwiseInference} on or off for the moves added from now on. When it is on, each new move is
+     * compared with the earlier ones, and any pegs that are ruled in or out are removed from the variables' domains
+     * directly, rather than being left for the search to find.
+     */
+    public void setPairwiseInference(boolean enabled) {
+        if (enabled && inference == null) {
+            inference = new PairwiseInference(variant);
+            for (Move move : moves) {
+                inference.add(move, scores.get(move), NO_DOMAINS); // just remember them for comparison
+            }
+        } else if (!enabled) {
+            inference = null;
+        }
+    }
+
+    public Heuristic getHeuristic() {
+        return heuristic;
+    }
+
+    /**
+     * Use the given heuristic for the searches from now on.
+     *
+     * @param seed the seed for {@link Heuristic#RANDOM_VALUE}, ignored by the others
+     */
+    public void setHeuristic(Heuristic heuristic, int seed) {
+        this.heuristic = heuristic;
+        this.seed = seed;
+        store.variableWeightManagement = heuristic.usesVariableWeights();
+        this.numCandidates = 0;
+        this.enumerated = false; // the candidates are kept in search order
+    }
+
+    /**
+     * Searches stop at the first node visited after the deadline. A count that is cut short is estimated from the
+     * solutions found so far, and {@link #candidates()} returns those solutions. A search for a move that is cut
+     * short plays a solution that was found before the deadline if there is one, or else the first solution in a
+     * short scan of the codes from the node where the search stopped, so it never plays a move that the scores rule
+     * out.
+     */
+    @Override
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    @Override
+    public long getDeadline() {
+        return deadline;
+    }
+
+    @Override
+    public boolean hitDeadline() {
+        return hitDeadline;
+    }
+
+    public boolean isPairwiseInference() {
+        return inference != null;
+    }
+
+    /**
+     * The number of pegs ruled in or out by pairwise inference so far, or zero if it is off.
+     */
+    public long getPairwiseReductions() {
+        return inference == null ? 0 : inference.getReductions();
+    }
+
+    private static final PairwiseInference.Domains NO_DOMAINS = new PairwiseInference.Domains() {
+        @Override
+        public boolean remove(int pos, int colour) {
+            return false;
+        }
+
+        @Override
+        public boolean fix(int pos, int colour) {
+            return false;
+        }
+    };
+
+    @Override
+    public Variant getVariant() {
+        return variant;
+    }
+
+    /**
+     * Find the first solution (in the heuristic's search order) that hasn't been played. If all the solutions have
+     * already been found (by {@link #countSolutions()} or {@link #candidates()}) they are scanned, otherwise a search
+     * is run that skips played moves as it finds them and stops at the first one that hasn't been played, so it
+     * doesn't visit the rest of the solutions.
+     */
+    @Override
+    public Move search(List<Move> played) {
+        hitDeadline = false;
+        playedCodes.clear();
+        for (Move move : played) {
+            playedCodes.set(move.code());
+        }
+        // the solutions found so far, by a full enumeration or by one that ran out of time
+        for (int i = 0; i < numCandidates; i++) {
+            if (!playedCodes.get(candidates[i])) {
+                return table.getMove(candidates[i]);
+            }
+        }
+        if (!enumerated) {
+            firstUnplayedListener.code = -1;
+            label(firstUnplayedSearch, true);
+            if (firstUnplayedListener.code >= 0) {
+                return table.getMove(firstUnplayedListener.code);
+            }
+            if (deadlineListener.stopped) {
+                hitDeadline = true;
+                int code = scanForSolution(Math.max(0, deadlineListener.code));
+                if (code < 0) {
+                    label(firstUnplayedSearch, false);
+                    code = firstUnplayedListener.code;
+                }
+                if (code >= 0) {
+                    return table.getMove(code);
+                }
+            }
+        }
+        throw new IllegalStateException("No unplayed solutions found for " + this);
+    }
+
+    /**
+     * Check up to {@link #FALLBACK_SCAN_CODES} codes, starting from the given one, against the moves, returning the
+     * first that is an unplayed solution, or -1 if there isn't one.
+     */
+    private int scanForSolution(int start) {
+        int numCodes = variant.getNumCodes();
+        for (int i = 0; i < Math.min(FALLBACK_SCAN_CODES, numCodes); i++) {
+            int code = (start + i) % numCodes;
+            if (!playedCodes.get(code) && isSolution(code)) {
+                return code;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isSolution(int code) {
+        for (Move move : moves) {
+            if (table.score(code, move.code()) != scores.get(move).id()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Return the number of possible solutions at this point in the game.
+     */
+    @Override
+    public int countSolutions() {
+        hitDeadline = false;
+        if (!enumerate(true)) {
+            hitDeadline = true;
+            return estimateSolutions();
+        }
+        return numCandidates;
+    }
+
+    /**
+     * Return the solutions, or those found before the deadline if it passes first (and at least one was found).
+     */
+    @Override
+    public int[] candidates() {
+        hitDeadline = false;
+        if (!enumerate(true)) {
+            hitDeadline = true;
+            if (numCandidates == 0) {
+                enumerate();
+            }
+        }
+        int[] codes = Arrays.copyOf(candidates, numCandidates);
+        if (heuristic != Heuristic.INPUT_ORDER) {
+            Arrays.sort(codes);
+        }
+        return codes;
+    }
+
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
+    @Override
+    public long getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public long getWrongDecisions() {
+        return wrongDecisions;
+    }
+
+    /**
+     * Find all the solutions for the moves so far, unless that has already been done since the last move. The
+     * solutions are kept as codes, in the order they were found, in a candidate list that is reused from move to
+     * move, rather than as the <code>Domain</code> arrays that the search would otherwise record. This is only
+     * practical for variants where the solutions fit in memory; see {@link SequentialSolver} for bigger ones.
+     */
+    private void enumerate() {
+        enumerate(false);
+    }
+
+    /**
+     * Find all the solutions, as {@link #enumerate()} does, unless the deadline is to be kept to and passes first.
+     *
+     * @return whether all the solutions were found
+     */
+    private boolean enumerate(boolean toDeadline) {
+        if (enumerated) {
+            return true;
+        }
+        numCandidates = 0;
+        label(candidateSearch, toDeadline);
+        if (deadlineListener.stopped) {
+            return false;
+        }
+        if (numCandidates == 0) {
+            throw new IllegalStateException("No solutions found for " + this);
+        }
+        enumerated = true;
+        return true;
+    }
+
+    /**
+     * Estimate the number of solutions from those found before the deadline. In input order they were found in code
+     * order, so the count is scaled up by the fraction of the codes covered, otherwise it is a lower bound. There is
+     * always at least one solution, the secret.
+     */
+    private int estimateSolutions() {
+        if (numCandidates == 0) {
+            return 1;
+        }
+        if (heuristic != Heuristic.INPUT_ORDER) {
+            return numCandidates;
+        }
+        long covered = candidates[numCandidates - 1] + 1;
+        return (int) Math.max(numCandidates, (long) numCandidates * variant.getNumCodes() / covered);
+    }
+
+    /**
+     * Create a search that passes each solution to the listener until it asks to stop. Each listener has its own
+     * search, which is reused for every labelling rather than built again each time.
+     */
+    private Search<IntVar> newSearch(SimpleSolutionListener<IntVar> listener) {
+        Search<IntVar> search = new DepthFirstSearch<IntVar>();
+        search.setAssignSolution(false); // don't assign variables after finding a solution, http://sourceforge.net/p/jacop-solver/discussion/1220992/thread/4caf2979/
+        search.setSolutionListener(listener);
+        listener.searchAll(true);
+        listener.recordSolutions(false);
+        search.setConsistencyListener(deadlineListener);
+        search.setPrintInfo(false);
+        return search;
+    }
+
+    /**
+     * Search for solutions in the order given by the heuristic, stopping at the first node visited after the
+     * deadline if it is to be kept to. The nodes and wrong decisions are counted by the listener, as the search's own counts may or may not
+     * carry over from one labelling to the next.
+     */
+    private void label(Search<IntVar> search, boolean toDeadline) {
+        deadlineListener.start(toDeadline);
+        search.labeling(store, heuristic.select(store, pegs, seed));
+        nodes += deadlineListener.nodes;
+        wrongDecisions += deadlineListener.failures;
+    }
+
+    private int code() {
+        int code = 0;
+        for (IntVar peg : pegs) {
+            code = code * variant.getNumColours() + peg.value();
+        }
+        return code;
+    }
+
+    /**
+     * Whether a solution of the store really is consistent with the scores. The primitive encoding is looser than the
+     * score for moves with a repeated colour (see {@link #scoreConstraint(Move, Score)}), so its solutions are
+     * checked against the score table; the score constraint is exact.
+     */
+    private boolean isConsistent(int code) {
+        return encoding == Encoding.SCORE_CONSTRAINT || isSolution(code);
+    }
+
+    /**
+     * Adds each solution to the candidate list as it is found.
+     */
+    private class CandidateListener extends SimpleSolutionListener<IntVar> {
+        @Override
+        public boolean executeAfterSolution(Search<IntVar> search, SelectChoicePoint<IntVar> select) {
+            int code = code();
+            if (!isConsistent(code)) {
+                return false;
+            }
+            if (numCandidates == candidates.length) {
+                candidates = Arrays.copyOf(candidates, candidates.length * 2);
+            }
+            candidates[numCandidates++] = code;
+            return super.executeAfterSolution(search, select);
+        }
+    }
+
+    /**
+     * Counts the nodes of a search, and the wrong decisions (nodes that propagation found to have no solutions). It
+     * also makes every node after the deadline fail, so that the search backtracks straight out of the tree. The
+     * lowest code left at the first consistent node after the deadline is kept, as a place to look for a solution.
+     * The solver's deadline is read at every node, so a search can be stopped from another thread.
+     */
+    private class DeadlineListener implements ConsistencyListener {
+        boolean toDeadline;
+        boolean stopped;
+        int code;
+        long nodes;
+        long failures;
+
+        void start(boolean toDeadline) {
+            this.toDeadline = toDeadline;
+            stopped = false;
+            code = -1;
+            nodes = 0;
+            failures = 0;
+        }
+
+        @Override
+        public boolean executeAfterConsistency(boolean consistent) {
+            nodes++;
+            if (!consistent) {
+                failures++;
+                return false;
+            }
+            long deadline = JaCoPSolver.this.deadline;
+            if (toDeadline && deadline != Long.MAX_VALUE && System.nanoTime() > deadline) {
+                if (!stopped) {
+                    stopped = true;
+                    code = lowestCode();
+                }
+                return false;
+            }
+            return true;
+        }
+
+        @Override
+        public void setChildrenListeners(ConsistencyListener[] children) {
+        }
+
+        @Override
+        public void setChildrenListeners(ConsistencyListener child) {
+        }
+    }
+
+    private int lowestCode() {
+        int code = 0;
+        for (IntVar peg : pegs) {
+            code = code * variant.getNumColours() + peg.min();
+        }
+        return code;
+    }
+
+    /**
+     * Rejects solutions that have been played, and stops the search at the first one that hasn't. Returning true
+     * from {@link #executeAfterSolution} stops the search; false carries on to the next solution.
+     */
+    private class FirstUnplayedListener extends SimpleSolutionListener<IntVar> {
+        int code = -1;
+
+        @Override
+        public boolean executeAfterSolution(Search<IntVar> search, SelectChoicePoint<IntVar> select) {
+            int solution = code();
+            if (playedCodes.get(solution) || !isConsistent(solution)) {
+                return false;
+            }
+            code = solution;
+            return true;
+        }
+    }
+
+    @Override
+    public void add(Move move, Score score) {
+        moves.add(move);
+        scores.put(move, score);
+
+        // impose each move's constraints at a new level, so they can be removed by reset()
+        store.setLevel(store.level + 1);
+        int key = move.code() * variant.getNumScoreIds() + score.id();
+        Constraint constraint = moves.size() <= CACHED_MOVES ? constraintCache.get(key) : null;
+        if (constraint == null) {
+            if (encoding == Encoding.SCORE_CONSTRAINT) {
+                constraint = new ScoreConstraint(pegs, move, score);
+            } else {
+                constraint = scoreConstraint(move, score);
+            }
+            if (moves.size() <= CACHED_MOVES) {
+                constraintCache.put(key, constraint);
+            }
+        }
+        if (constraint instanceof PrimitiveConstraint) {
+            impose((PrimitiveConstraint) constraint);
+        } else {
+            store.impose(constraint);
+        }
+        if (inference != null) {
+            inference.add(move, score, domains);
+        }
+        numCandidates = 0;
+        enumerated = false;
+    }
+
+    /**
+     * Remove the moves' constraints by backtracking the store to the level it was at before the first move, rather
+     * than building a new store and variables.
+     */
+    @Override
+    public void reset() {
+        while (store.level > baseLevel) {
+            store.removeLevel(store.level);
+            store.setLevel(store.level - 1);
+        }
+        moves.clear();
+        scores.clear();
+        if (inference != null) {
+            inference.reset();
+        }
+        numCandidates = 0;
+        enumerated = false;
+        deadline = Long.MAX_VALUE;
+        hitDeadline = false;
+        store.variableWeightManagement = heuristic.usesVariableWeights(); // don't keep paying for another's weights
+    }
+
+    /**
+     * Impose a constraint.
+     */
+    protected void impose(PrimitiveConstraint constraint) {
+        store.impose(constraint);
+    }
+
+    /**
+     * Colour appears in given position
+     */
+    private PrimitiveConstraint whiteConstraint(Move.Peg colour, int pos) {
+        return new XeqC(pegs[pos], colour.ordinal());
+    }
+
+    /**
+     * Colour does not appear in given position but does appear in another position
+     */
+    private PrimitiveConstraint redConstraint(Move.Peg colour, int pos) {
+        return redConstraint(colour, pos, positions);
+    }
+
+    /**
+     * Colour does not appear in given position but does appear in another position (restricted from full set of positions)
+     */
+    private PrimitiveConstraint redConstraint(Move.Peg colour, int pos, Set<Integer> possiblePos) {
+        ArrayList<PrimitiveConstraint> constraints = Lists.newArrayList();
+        for (int p : possiblePos) {
+            if (p == pos) {
+                continue;
+            }
+            constraints.add(new XeqC(pegs[p], colour.ordinal()));
+        }
+        return new And(noneConstraint(colour, pos), new Or(constraints));
+    }
+
+    /**
+     * Colour does not appear in given position
+     */
+    private PrimitiveConstraint noneConstraint(Move.Peg colour, int pos) {
+        return new Not(new XeqC(pegs[pos], colour.ordinal()));
+    }
+
+    /**
+     * Colour does not appear in any position
+     */
+    private PrimitiveConstraint noneConstraint(Move.Peg colour) {
+        ArrayList<PrimitiveConstraint> constraints = Lists.newArrayList();
+        for (int pos : positions) {
+            constraints.add(noneConstraint(colour, pos));
+        }
+        return new And(constraints);
+    }
+
+    /**
+     * A constraint for a normal move. When the move repeats a colour a NONE peg only rules its colour out of its own
+     * position, so the disjunction admits some codes that score differently; {@link #isConsistent(int)} drops them.
+     */
+    PrimitiveConstraint scoreConstraint(Move move, Score score) {
+        // if no whites or reds then none of the colours appear anywhere
+        if (score.count(NONE) == variant.getNumPositions()) {
+            ArrayList<PrimitiveConstraint> constraints = Lists.newArrayList();
+            for (int pos : positions) {
+                constraints.add(noneConstraint(move.get(pos)));
+            }
+            return new And(constraints);
+        }
+        ArrayList<PrimitiveConstraint> constraints = Lists.newArrayList();
+        for (List<Score.Peg> combo : score.permutations()) {
+            ArrayList<PrimitiveConstraint> moveConstraints = Lists.newArrayList();
+            Set<Integer> possibleRedPos = Sets.newLinkedHashSet(positions);
+            int offset = 0;
+            for (int pos : positions) {
+                Score.Peg s = combo.get(offset);
+                Move.Peg col = move.get(pos);
+                if (s.equals(WHITE)) {
+                    moveConstraints.add(whiteConstraint(col, pos));
+                    possibleRedPos.remove(pos); // red can't actually appear where white does
+                } else if (s.equals(NONE)) {
+                    if (move.hasDistinctColours()) {
+                        // if move's colours are all different then col doesn't appear anywhere
+                        moveConstraints.add(noneConstraint(col));
+                    } else {
+                        moveConstraints.add(noneConstraint(col, pos));
+                    }
+                }
+                offset++;
+            }
+            offset = 0;
+            for (int pos : positions) {
+                Score.Peg s = combo.get(offset);
+                if (s.equals(RED)) {
+                    moveConstraints.add(redConstraint(move.get(pos), pos, possibleRedPos));
+                }
+                offset++;
+            }
+            constraints.add(new And(moveConstraints));
+        }
+        return new Or(constraints);
+    }
+}
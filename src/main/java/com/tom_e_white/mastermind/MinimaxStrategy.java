@@ -0,0 +1,17 @@
+package com.tom_e_white.mastermind;
+
+/**
+ * Knuth's minimax strategy, which never needs more than five moves: the guess whose largest partition is smallest
+ * is played.
+ */
+public class MinimaxStrategy extends PartitionStrategy {
+
+    @Override
+    protected double cost(int[] partitionSizes, int numSolutions) {
+        int largest = 0;
+        for (int size : partitionSizes) {
+            largest = Math.max(largest, size);
+        }
+        return largest;
+    }
+}
@@ -1,6 +1,7 @@
 package com.tom_e_white.mastermind;
 
 import com.google.common.base.Preconditions;
+import com.google.common.collect.Lists;
 import com.google.common.collect.Sets;
 
 import java.util.Arrays;
@@ -8,43 +9,79 @@ import java.util.List;
 import java.util.Set;
 
 /**
- * A move represents four coloured pegs in a particular order.
+ * A move represents coloured pegs in a particular order: four pegs of six colours in the standard game, or the
+ * sizes given by its {@link Variant}.
  */
 public class Move {
 
     /**
-     * Colours of pegs for the moves.
+     * Colours of pegs for the moves. The standard game uses the first six.
      */
     public static enum Peg {
-        BLUE, GREEN, PURPLE, ORANGE, YELLOW, PINK
+        BLUE, GREEN, PURPLE, ORANGE, YELLOW, PINK, CYAN, BROWN, GREY, BLACK
     }
 
+    private Variant variant;
     private List<Peg> pegs;
+    private int code;
 
     public Move(int a, int b, int c, int d) {
         this(Peg.values()[a], Peg.values()[b], Peg.values()[c], Peg.values()[d]);
     }
-    
+
     public Move(Peg a, Peg b, Peg c, Peg d) {
-        pegs = Arrays.asList(a, b, c, d);
+        this(Arrays.asList(a, b, c, d));
     }
 
     public Move(List<Peg> pegs) {
-        Preconditions.checkArgument(pegs.size() == Game.NUM_POSITIONS);
+        this(Variant.STANDARD, pegs);
+    }
+
+    public Move(Variant variant, int... colours) {
+        this(variant, pegs(colours));
+    }
+
+    public Move(Variant variant, List<Peg> pegs) {
+        Preconditions.checkArgument(pegs.size() == variant.getNumPositions());
+        this.variant = variant;
         this.pegs = pegs;
+        for (Peg peg : pegs) {
+            Preconditions.checkArgument(peg.ordinal() < variant.getNumColours(), "Colour not in %s game: %s",
+                    variant, peg);
+            code = code * variant.getNumColours() + peg.ordinal();
+        }
+    }
+
+    private static List<Peg> pegs(int... colours) {
+        List<Peg> pegs = Lists.newArrayList();
+        for (int colour : colours) {
+            pegs.add(Peg.values()[colour]);
+        }
+        return pegs;
+    }
+
+    public Variant getVariant() {
+        return variant;
     }
 
     public Peg get(int pos) {
         return pegs.get(pos);
     }
 
+    /**
+     * The move packed into an int. See {@link Variant}.
+     */
+    public int code() {
+        return code;
+    }
+
     public boolean hasDistinctColours() {
-        return Sets.newHashSet(pegs).size() == Game.NUM_POSITIONS;
+        return Sets.newHashSet(pegs).size() == pegs.size();
     }
 
     public Set<Integer> diff(Move move) {
         Set<Integer> positions = Sets.newHashSet();
-        for (int pos : Game.ALL_POS) {
+        for (int pos : variant.getPositions()) {
             if (get(pos) != move.get(pos)) {
                 positions.add(pos);
             }
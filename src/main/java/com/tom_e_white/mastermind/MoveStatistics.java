@@ -0,0 +1,162 @@
+package com.tom_e_white.mastermind;
+
+import java.io.PrintStream;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * {@link GameMetrics} aggregated over any number of games, which may be played concurrently: totals for each move
+ * number of the candidates left, search nodes and wrong decisions, and histograms of the time taken to build
+ * constraints, to search, and for both together.
+ *
+ * Everything is kept in atomic counters, so recording a move takes a few uncontended atomic increments and doesn't
+ * allocate. Timings go into histograms with a bucket for each power of two nanoseconds, so percentiles are only
+ * accurate to within a factor of two.
+ */
+public class MoveStatistics implements GameMetrics {
+
+    /**
+     * Moves after this many are counted with the last one.
+     */
+    private static final int MAX_MOVES = 16;
+    private static final int BUCKETS = 64;
+
+    private final AtomicLong games = new AtomicLong();
+    private final AtomicLongArray moves = new AtomicLongArray(MAX_MOVES);
+    private final AtomicLongArray candidates = new AtomicLongArray(MAX_MOVES);
+    private final AtomicLongArray nodes = new AtomicLongArray(MAX_MOVES);
+    private final AtomicLongArray wrongDecisions = new AtomicLongArray(MAX_MOVES);
+    private final AtomicLongArray constraintNanos = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray searchNanos = new AtomicLongArray(BUCKETS);
+    private final AtomicLongArray moveNanos = new AtomicLongArray(BUCKETS);
+    private final AtomicLong totalConstraintNanos = new AtomicLong();
+    private final AtomicLong totalSearchNanos = new AtomicLong();
+
+    @Override
+    public void moveMade(int moveNumber, int candidates, long nodes, long wrongDecisions, long constraintNanos,
+                         long searchNanos) {
+        int i = Math.min(moveNumber, MAX_MOVES) - 1;
+        this.moves.incrementAndGet(i);
+        this.candidates.addAndGet(i, candidates);
+        if (nodes != 0) {
+            this.nodes.addAndGet(i, nodes);
+        }
+        if (wrongDecisions != 0) {
+            this.wrongDecisions.addAndGet(i, wrongDecisions);
+        }
+        this.constraintNanos.incrementAndGet(bucket(constraintNanos));
+        this.searchNanos.incrementAndGet(bucket(searchNanos));
+        this.moveNanos.incrementAndGet(bucket(constraintNanos + searchNanos));
+        totalConstraintNanos.addAndGet(constraintNanos);
+        totalSearchNanos.addAndGet(searchNanos);
+    }
+
+    @Override
+    public void gameFinished(Result result) {
+        games.incrementAndGet();
+    }
+
+    private static int bucket(long nanos) {
+        return nanos <= 0 ? 0 : BUCKETS - 1 - Long.numberOfLeadingZeros(nanos);
+    }
+
+    public long getGames() {
+        return games.get();
+    }
+
+    /**
+     * The number of games that reached the given move.
+     */
+    public long getMoves(int moveNumber) {
+        return moves.get(moveNumber - 1);
+    }
+
+    public double getAverageCandidates(int moveNumber) {
+        return average(candidates, moveNumber);
+    }
+
+    public double getAverageNodes(int moveNumber) {
+        return average(nodes, moveNumber);
+    }
+
+    public double getAverageWrongDecisions(int moveNumber) {
+        return average(wrongDecisions, moveNumber);
+    }
+
+    /**
+     * The number of search nodes visited over all the moves of all the games.
+     */
+    public long getTotalNodes() {
+        long total = 0;
+        for (int i = 0; i < MAX_MOVES; i++) {
+            total += nodes.get(i);
+        }
+        return total;
+    }
+
+    private double average(AtomicLongArray totals, int moveNumber) {
+        long n = moves.get(moveNumber - 1);
+        return n == 0 ? 0 : (double) totals.get(moveNumber - 1) / n;
+    }
+
+    /**
+     * An upper bound on the given percentile (between 0 and 1) of constraint build times, in nanoseconds.
+     */
+    public long getConstraintNanosPercentile(double percentile) {
+        return percentile(constraintNanos, percentile);
+    }
+
+    /**
+     * An upper bound on the given percentile (between 0 and 1) of search times, in nanoseconds.
+     */
+    public long getSearchNanosPercentile(double percentile) {
+        return percentile(searchNanos, percentile);
+    }
+
+    /**
+     * An upper bound on the given percentile (between 0 and 1) of the total time spent by the computer on a move,
+     * building constraints and searching, in nanoseconds.
+     */
+    public long getMoveNanosPercentile(double percentile) {
+        return percentile(moveNanos, percentile);
+    }
+
+    private static long percentile(AtomicLongArray histogram, double percentile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += histogram.get(i);
+        }
+        long target = (long) Math.ceil(percentile * total);
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            count += histogram.get(i);
+            if (count >= target && count > 0) {
+                return i == BUCKETS - 1 ? Long.MAX_VALUE : (1L << (i + 1)) - 1;
+            }
+        }
+        return 0;
+    }
+
+    public void report(PrintStream out) {
+        out.println("Move  Games  Avg candidates  Avg nodes  Avg wrong decisions");
+        for (int moveNumber = 1; moveNumber <= MAX_MOVES; moveNumber++) {
+            if (getMoves(moveNumber) > 0) {
+                out.printf("%4d %6d %15.1f %10.1f %20.1f%n", moveNumber, getMoves(moveNumber),
+                        getAverageCandidates(moveNumber), getAverageNodes(moveNumber),
+                        getAverageWrongDecisions(moveNumber));
+            }
+        }
+        long numMoves = 0;
+        for (int i = 0; i < MAX_MOVES; i++) {
+            numMoves += moves.get(i);
+        }
+        if (numMoves > 0) {
+            out.printf("Constraint time per move: avg %.1fus, p50 <%.1fus, p99 <%.1fus%n",
+                    totalConstraintNanos.get() / 1000.0 / numMoves, getConstraintNanosPercentile(0.5) / 1000.0,
+                    getConstraintNanosPercentile(0.99) / 1000.0);
+            out.printf("Search time per move: avg %.1fus, p50 <%.1fus, p99 <%.1fus%n",
+                    totalSearchNanos.get() / 1000.0 / numMoves, getSearchNanosPercentile(0.5) / 1000.0,
+                    getSearchNanosPercentile(0.99) / 1000.0);
+        }
+    }
+}
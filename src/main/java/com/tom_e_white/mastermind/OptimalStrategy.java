@@ -0,0 +1,397 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * The strategy that needs the fewest moves on average over all the secrets, found by searching the whole game tree.
+ *
+ * The cost of a set of solutions is the total number of moves needed to find each of them, and is the size of the set
+ * (for the next guess) plus the cost of each partition the guess splits it into, apart from the guess itself if it is
+ * a solution. It is found by branch-and-bound: a guess is only explored if a lower bound on its cost, from the sizes
+ * of its partitions, beats the best guess so far, and the partitions are only explored until they go over budget.
+ * Guesses are tried in order of their lower bound, one from each class of guesses equivalent under the
+ * {@link Symmetry} left by the moves so far, and the cost of each set of solutions is memoised, as is a lower bound for
+ * those that went over budget. The memos are bounded by the total number of solutions in the sets they keep, so for a
+ * big variant the least recently used sets are dropped and solved again if they come up again. The partitions of the
+ * first move are explored in parallel.
+ *
+ * The game tree is searched when the first move is needed, and the moves for the rest of the game come from the memo
+ * (searching again from the current solutions if they weren't explored fully). The maximum number of moves is not
+ * taken into account; for the standard game the deepest secret takes six moves.
+ *
+ * If the solver has a {@link Solver#setDeadline(long) deadline} that passes before the search is done, the first
+ * solution is played instead. The sets of solutions that were solved in time stay in the memo.
+ */
+public class OptimalStrategy implements Strategy {
+
+    private static final int INFINITY = Integer.MAX_VALUE / 2;
+
+    /**
+     * Sets this small are solved directly, and aren't memoised: one solution takes one move, and two take three.
+     */
+    private static final int MAX_TRIVIAL_SIZE = 2;
+
+    /**
+     * The default limit on the total number of solutions in the sets kept in each memo, about 64MB of codes.
+     */
+    public static final long DEFAULT_MEMO_CODES = 16 * 1024 * 1024;
+
+    /**
+     * For each set of solutions, its cost and the guess to play, packed as cost << 32 | guess.
+     */
+    private final Cache<SolutionSet, Long> costs;
+
+    /**
+     * For sets of solutions that went over budget, a lower bound on their cost.
+     */
+    private final Cache<SolutionSet, Integer> lowerBounds;
+
+    public OptimalStrategy() {
+        this(DEFAULT_MEMO_CODES);
+    }
+
+    /**
+     * @param maxMemoCodes the most solutions (over all the sets of solutions) to keep in each memo
+     */
+    public OptimalStrategy(long maxMemoCodes) {
+        this.costs = CacheBuilder.newBuilder()
+                .maximumWeight(maxMemoCodes)
+                .weigher(new Weigher<SolutionSet, Long>() {
+                    @Override
+                    public int weigh(SolutionSet key, Long value) {
+                        return key.size();
+                    }
+                })
+                .build();
+        this.lowerBounds = CacheBuilder.newBuilder()
+                .maximumWeight(maxMemoCodes)
+                .weigher(new Weigher<SolutionSet, Integer>() {
+                    @Override
+                    public int weigh(SolutionSet key, Integer value) {
+                        return key.size();
+                    }
+                })
+                .build();
+    }
+
+    /**
+     * All the guesses start from scratch, so the first is found by searching too.
+     */
+    @Override
+    public List<Move> getOpeningMoves(Variant variant) {
+        return ImmutableList.of();
+    }
+
+    @Override
+    public Move nextMove(Solver solver, List<Move> played) {
+        Variant variant = solver.getVariant();
+        ScoreTable table = ScoreTable.get(variant);
+        int[] candidates = solver.candidates();
+        if (candidates.length <= MAX_TRIVIAL_SIZE || solver.hitDeadline()) {
+            return table.getMove(candidates[0]);
+        }
+        Long cost = costs.getIfPresent(new SolutionSet(variant, candidates));
+        if (cost == null) {
+            try {
+                cost = new Search(table, played.isEmpty(), solver).search(candidates, played, INFINITY);
+            } catch (OutOfTimeException e) {
+                return table.getMove(candidates[0]);
+            }
+        }
+        return table.getMove((int) (cost & 0xffffffffL));
+    }
+
+    /**
+     * Return the total number of moves needed to find every secret of the variant with this strategy.
+     */
+    public int getTotalMoves(Variant variant) {
+        ScoreTable table = ScoreTable.get(variant);
+        int[] all = new int[variant.getNumCodes()];
+        for (int code = 0; code < all.length; code++) {
+            all[code] = code;
+        }
+        return new Search(table, true, null).solve(all, ImmutableList.<Move>of(), INFINITY);
+    }
+
+    /**
+     * The number of sets of solutions whose cost is known (and hasn't been dropped from the memo).
+     */
+    public long getMemoSize() {
+        return costs.size();
+    }
+
+    /**
+     * A lower bound on the cost of any set of solutions of a given size. The first guess finds at most one secret,
+     * the second at most one for each score the first could get apart from the winning one, the third at most one for
+     * each pair of such scores, and so on. The scores that can be got are those with no more white and red pegs than
+     * positions, apart from all but one peg right and one out of place, which can't happen: 13 for the standard game.
+     */
+    static int[] lowerBounds(ScoreTable table, int maxSize) {
+        Variant variant = table.getVariant();
+        int numPositions = variant.getNumPositions();
+        int branching = 0;
+        for (int id = 0; id < variant.getNumScoreIds(); id++) {
+            if (table.getScore(id) != null && id != variant.scoreId(numPositions, 0)
+                    && id != variant.scoreId(numPositions - 1, 1)) {
+                branching++;
+            }
+        }
+        branching = Math.max(1, branching);
+        int[] bounds = new int[maxSize + 1];
+        long atDepth = 1;
+        int depth = 1;
+        int left = 0;
+        for (int size = 1; size <= maxSize; size++) {
+            if (left == 0) {
+                if (size > 1) {
+                    depth++;
+                    atDepth = Math.min(atDepth * branching, Integer.MAX_VALUE);
+                }
+                left = (int) atDepth;
+            }
+            bounds[size] = bounds[size - 1] + depth;
+            left--;
+        }
+        return bounds;
+    }
+
+    private class Search {
+        private final ScoreTable table;
+        private final Variant variant;
+        private final int numScoreIds;
+        private final int winningScoreId;
+        private final int[] bounds;
+        private final boolean parallel;
+        private final Solver solver;
+
+        /**
+         * @param solver the solver whose deadline (read as the search goes) is kept to, or null for none
+         */
+        Search(ScoreTable table, boolean parallel, Solver solver) {
+            this.table = table;
+            this.variant = table.getVariant();
+            this.numScoreIds = variant.getNumScoreIds();
+            this.winningScoreId = variant.scoreId(variant.getNumPositions(), 0);
+            this.bounds = lowerBounds(table, variant.getNumCodes());
+            this.parallel = parallel;
+            this.solver = solver;
+        }
+
+        /**
+         * Return the cost of the given solutions if it is less than the budget, or a lower bound on it that is no less
+         * than the budget otherwise.
+         */
+        int solve(int[] solutions, List<Move> played, int budget) {
+            return (int) (search(solutions, played, budget) >>> 32);
+        }
+
+        /**
+         * Return the cost of the given solutions and the guess to play, packed as cost << 32 | guess, if the cost is
+         * less than the budget. Otherwise return a lower bound on the cost that is no less than the budget, with a
+         * guess of -1. The result doesn't depend on the memo still holding the set once it has been solved.
+         *
+         * @throws OutOfTimeException if the deadline passes first, before anything about the set is memoised
+         */
+        long search(int[] solutions, List<Move> played, int budget) {
+            int n = solutions.length;
+            if (n <= MAX_TRIVIAL_SIZE) {
+                return pack(bounds[n], solutions[0]);
+            }
+            if (solver != null && pastDeadline(solver.getDeadline())) {
+                throw new OutOfTimeException();
+            }
+            SolutionSet key = new SolutionSet(variant, solutions);
+            Long cost = costs.getIfPresent(key);
+            if (cost != null) {
+                return cost;
+            }
+            Integer known = lowerBounds.getIfPresent(key);
+            int lowerBound = Math.max(bounds[n], known == null ? 0 : known);
+            if (lowerBound >= budget) {
+                return pack(lowerBound, -1);
+            }
+
+            // rank the guesses by the lower bound on their cost, then by whether they are solutions, then by code
+            int[] guesses = new Symmetry(variant, played).representatives();
+            boolean[] isSolution = new boolean[variant.getNumCodes()];
+            for (int solution : solutions) {
+                isSolution[solution] = true;
+            }
+            long[] ranked = new long[guesses.length];
+            int numRanked = 0;
+            int[] sizes = new int[numScoreIds];
+            for (int guess : guesses) {
+                partitionSizes(solutions, guess, sizes);
+                if (sizes[winningScoreId] == 0 && max(sizes) == n) {
+                    continue; // tells us nothing
+                }
+                int guessBound = n;
+                for (int id = 0; id < numScoreIds; id++) {
+                    if (id != winningScoreId) {
+                        guessBound += bounds[sizes[id]];
+                    }
+                }
+                ranked[numRanked++] = ((long) guessBound << 32) | ((isSolution[guess] ? 0L : 1L) << 31) | guess;
+            }
+            Arrays.sort(ranked, 0, numRanked);
+
+            int best = budget;
+            int bestGuess = -1;
+            List<Move> next = Lists.newArrayList(played);
+            next.add(null);
+            for (int r = 0; r < numRanked; r++) {
+                int guessBound = (int) (ranked[r] >>> 32);
+                if (guessBound >= best) {
+                    break;
+                }
+                int guess = (int) (ranked[r] & Integer.MAX_VALUE);
+                next.set(next.size() - 1, table.getMove(guess));
+                int total = parallel ? solveInParallel(solutions, guess, guessBound, next, best)
+                        : solvePartitions(solutions, guess, guessBound, next, best);
+                if (total < best) {
+                    best = total;
+                    bestGuess = guess;
+                }
+            }
+            if (bestGuess == -1) {
+                ConcurrentMap<SolutionSet, Integer> knownBounds = lowerBounds.asMap();
+                Integer previous = knownBounds.put(key, best);
+                if (previous != null && previous > best) {
+                    knownBounds.put(key, previous); // a racing search found a better bound
+                }
+                return pack(best, -1);
+            }
+            long packed = pack(best, bestGuess);
+            costs.put(key, packed);
+            lowerBounds.invalidate(key);
+            return packed;
+        }
+
+        /**
+         * Add up the costs of the partitions of a guess, largest first, starting from the guess's lower bound and
+         * stopping as soon as the total reaches the budget.
+         */
+        private int solvePartitions(int[] solutions, int guess, int guessBound, List<Move> played, int budget) {
+            int total = guessBound;
+            for (int[] partition : partitions(solutions, guess)) {
+                int n = partition.length;
+                int cost = solve(partition, played, budget - (total - bounds[n]));
+                total += cost - bounds[n];
+                if (total >= budget) {
+                    return total;
+                }
+            }
+            return total;
+        }
+
+        /**
+         * Add up the costs of the partitions of a guess, exploring them in parallel, each with the budget that would be
+         * left if the others met their lower bounds.
+         */
+        private int solveInParallel(int[] solutions, int guess, int guessBound, final List<Move> played,
+                                    final int budget) {
+            final List<Move> history = ImmutableList.copyOf(played);
+            final Search search = new Search(table, false, solver);
+            List<RecursiveTask<Integer>> tasks = Lists.newArrayList();
+            for (final int[] partition : partitions(solutions, guess)) {
+                final int childBudget = budget - (guessBound - bounds[partition.length]);
+                tasks.add(new RecursiveTask<Integer>() {
+                    @Override
+                    protected Integer compute() {
+                        return search.solve(partition, history, childBudget) - bounds[partition.length];
+                    }
+                });
+            }
+            int total = guessBound;
+            for (RecursiveTask<Integer> task : RecursiveTask.invokeAll(tasks)) {
+                total += task.join();
+            }
+            return total;
+        }
+
+        private void partitionSizes(int[] solutions, int guess, int[] sizes) {
+            Arrays.fill(sizes, 0);
+            for (int solution : solutions) {
+                sizes[table.score(solution, guess)]++;
+            }
+        }
+
+        /**
+         * Split the solutions by their score against the guess, leaving out the guess itself, largest first.
+         */
+        private List<int[]> partitions(int[] solutions, int guess) {
+            int[] sizes = new int[numScoreIds];
+            partitionSizes(solutions, guess, sizes);
+            int[][] partitions = new int[numScoreIds][];
+            for (int id = 0; id < numScoreIds; id++) {
+                partitions[id] = new int[sizes[id]];
+            }
+            int[] filled = new int[numScoreIds];
+            for (int solution : solutions) {
+                int id = table.score(solution, guess);
+                partitions[id][filled[id]++] = solution;
+            }
+            List<int[]> result = Lists.newArrayList();
+            for (int id = 0; id < numScoreIds; id++) {
+                if (id != winningScoreId && sizes[id] > 0) {
+                    result.add(partitions[id]);
+                }
+            }
+            Collections.sort(result, new Comparator<int[]>() {
+                @Override
+                public int compare(int[] a, int[] b) {
+                    return b.length - a.length;
+                }
+            });
+            return result;
+        }
+    }
+
+    /**
+     * Unwinds a search when the deadline passes.
+     */
+    private static class OutOfTimeException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    private static boolean pastDeadline(long deadline) {
+        return deadline != Long.MAX_VALUE && System.nanoTime() > deadline;
+    }
+
+    private static long pack(int cost, int guess) {
+        return ((long) cost << 32) | (guess & 0xffffffffL);
+    }
+
+    private static int max(int[] values) {
+        int max = 0;
+        for (int value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    /**
+     * Find the optimal strategy for the standard game, or the variant given as an argument, e.g. 3x5, and report the
+     * average number of moves it needs.
+     */
+    public static void main(String[] args) {
+        Variant variant = args.length > 0 ? Variant.parse(args[0]) : Variant.STANDARD;
+        OptimalStrategy strategy = new OptimalStrategy();
+        long start = System.nanoTime();
+        int total = strategy.getTotalMoves(variant);
+        System.out.printf("%s: %d moves in total, %.4f on average, found in %.1fs (%d sets of solutions)%n",
+                variant, total, (double) total / variant.getNumCodes(), (System.nanoTime() - start) / 1e9,
+                strategy.getMemoSize());
+    }
+}
@@ -0,0 +1,162 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.collect.Lists;
+
+import java.util.List;
+
+/**
+ * Infers facts about single pegs of the secret by comparing each new move with the moves before it, as described in
+ * "Constraints from Differences" in the README. When two moves differ in one position, the change in the number of
+ * white pegs says whether either colour is in that position, and the change in the total number of pegs can rule a
+ * colour out everywhere. When they differ in two positions and neither score has any red pegs, a gain in whites
+ * rules the first move's colours out of both positions (and a loss rules out the second's).
+ *
+ * Only the new move is compared with the earlier ones, so each move costs time linear in the number of moves so far.
+ * The facts are passed to a {@link Domains}, to be applied directly to the solver's variables.
+ */
+public class PairwiseInference {
+
+    /**
+     * Receives the inferred facts, and says whether each one told it anything new.
+     */
+    public interface Domains {
+        /**
+         * The secret doesn't have the colour in the position. Return true if the colour was still possible there.
+         */
+        boolean remove(int pos, int colour);
+
+        /**
+         * The secret has the colour in the position. Return true if another colour was still possible there.
+         */
+        boolean fix(int pos, int colour);
+    }
+
+    private final Variant variant;
+    private final List<Move> moves = Lists.newArrayList();
+    private final List<Score> scores = Lists.newArrayList();
+    private final int[] diff;
+    private long reductions;
+
+    public PairwiseInference(Variant variant) {
+        this.variant = variant;
+        this.diff = new int[variant.getNumPositions()];
+    }
+
+    /**
+     * Compare a new move with the moves added before it, passing what can be inferred to the domains.
+     */
+    public void add(Move move, Score score, Domains domains) {
+        for (int i = 0; i < moves.size(); i++) {
+            infer(moves.get(i), scores.get(i), move, score, domains);
+        }
+        moves.add(move);
+        scores.add(score);
+    }
+
+    /**
+     * Forget the moves, for a new game.
+     */
+    public void reset() {
+        moves.clear();
+        scores.clear();
+    }
+
+    /**
+     * The number of inferred facts that changed a domain, over all games. Facts that were already known (from the
+     * constraints, or from an earlier inference) aren't counted.
+     */
+    public long getReductions() {
+        return reductions;
+    }
+
+    private void infer(Move move1, Score score1, Move move2, Score score2, Domains domains) {
+        int numDiffs = 0;
+        for (int pos = 0; pos < diff.length; pos++) {
+            if (move1.get(pos) != move2.get(pos)) {
+                if (numDiffs == 2) {
+                    return;
+                }
+                diff[numDiffs++] = pos;
+            }
+        }
+        if (numDiffs == 1) {
+            inferOneDiff(move1, score1, move2, score2, diff[0], domains);
+        } else if (numDiffs == 2) {
+            inferTwoDiffs(move1, score1, move2, score2, domains);
+        }
+    }
+
+    /**
+     * Changing colour a to b in position d changes the whites by [secret has b in d] - [secret has a in d], and the
+     * total by [secret has more b's than move 1] - [secret has at least as many a's as move 1].
+     */
+    private void inferOneDiff(Move move1, Score score1, Move move2, Score score2, int d, Domains domains) {
+        int a = move1.get(d).ordinal();
+        int b = move2.get(d).ordinal();
+        int whiteDelta = score2.count(Score.Peg.WHITE) - score1.count(Score.Peg.WHITE);
+        int totalDelta = whiteDelta + score2.count(Score.Peg.RED) - score1.count(Score.Peg.RED);
+        if (whiteDelta == 0) {
+            remove(d, a, domains);
+            remove(d, b, domains);
+        } else if (whiteDelta == 1) {
+            fix(d, b, domains);
+        } else {
+            fix(d, a, domains);
+        }
+        if (totalDelta == 1 && count(move1, a) == 1) {
+            removeEverywhere(a, domains); // fewer a's in the secret than the one in move 1
+        } else if (totalDelta == -1 && count(move1, b) == 0) {
+            removeEverywhere(b, domains); // no more b's in the secret than the none in move 1
+        }
+    }
+
+    /**
+     * With no reds in either score, a colour in a position that isn't white can't appear in any other position that
+     * isn't white. A gain in whites means that the secret doesn't have move 1's colours in those positions, nor can
+     * it have them in the other position, since they'd have been red.
+     */
+    private void inferTwoDiffs(Move move1, Score score1, Move move2, Score score2, Domains domains) {
+        if (score1.count(Score.Peg.RED) != 0 || score2.count(Score.Peg.RED) != 0) {
+            return;
+        }
+        int whiteDelta = score2.count(Score.Peg.WHITE) - score1.count(Score.Peg.WHITE);
+        Move loser = whiteDelta > 0 ? move1 : whiteDelta < 0 ? move2 : null;
+        if (loser == null) {
+            return;
+        }
+        for (int i = 0; i < 2; i++) {
+            int colour = loser.get(diff[i]).ordinal();
+            for (int j = 0; j < 2; j++) {
+                remove(diff[j], colour, domains);
+            }
+        }
+    }
+
+    private static int count(Move move, int colour) {
+        int count = 0;
+        for (int pos = 0; pos < move.getVariant().getNumPositions(); pos++) {
+            if (move.get(pos).ordinal() == colour) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void removeEverywhere(int colour, Domains domains) {
+        for (int pos = 0; pos < variant.getNumPositions(); pos++) {
+            remove(pos, colour, domains);
+        }
+    }
+
+    private void remove(int pos, int colour, Domains domains) {
+        if (domains.remove(pos, colour)) {
+            reductions++;
+        }
+    }
+
+    private void fix(int pos, int colour, Domains domains) {
+        if (domains.fix(pos, colour)) {
+            reductions++;
+        }
+    }
+}
@@ -0,0 +1,320 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import com.google.common.cache.Weigher;
+import com.google.common.collect.ImmutableList;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * A strategy that considers every code as a guess, partitions the solutions by the score they would give it, and
+ * plays the guess whose partitions have the lowest {@link #cost(int[], int)}, preferring guesses that are themselves
+ * solutions, then the lowest code.
+ *
+ * The partitions for different guesses are independent, so they are computed in parallel on a fork/join pool (the
+ * pool of the calling thread if it is a fork/join worker, or the common pool otherwise). The same sets of solutions
+ * come up again and again over many games (the set after the opening move and its score, for a start), so the
+ * choice for each set of solutions is kept in a bounded memo, which may be shared by games running in parallel.
+ *
+ * Only one guess from each class of guesses that are equivalent under the {@link Symmetry} left by the moves played
+ * is considered, which gives the same choice as considering them all.
+ *
+ * If the solver has a {@link Solver#setDeadline(long) deadline}, the guesses stop being tried when it passes, and the
+ * best one tried so far is played. The deadline is read as the guesses are tried, so it may be set while they are.
+ */
+public abstract class PartitionStrategy implements Strategy {
+
+    private static final List<Move> OPENING_MOVES = ImmutableList.of(new Move(0, 0, 1, 1));
+
+    /**
+     * Below this many scores to compute (guesses times solutions) it's cheaper not to split the work.
+     */
+    private static final int MIN_SCORES_PER_TASK = 16 * 1024;
+
+    /**
+     * The default limit on the total number of solutions in the sets kept in the memo, about 4MB of codes.
+     */
+    public static final long DEFAULT_MEMO_CODES = 1024 * 1024;
+
+    /**
+     * The guess chosen for a set of solutions, and how it partitions them.
+     */
+    public static class Choice {
+        private final int code;
+        private final double cost;
+        private final boolean isCandidate;
+        private final int numPartitions;
+        private final int largestPartition;
+
+        Choice(int code, double cost, boolean isCandidate, int numPartitions, int largestPartition) {
+            this.code = code;
+            this.cost = cost;
+            this.isCandidate = isCandidate;
+            this.numPartitions = numPartitions;
+            this.largestPartition = largestPartition;
+        }
+
+        public int getCode() {
+            return code;
+        }
+
+        public double getCost() {
+            return cost;
+        }
+
+        public int getNumPartitions() {
+            return numPartitions;
+        }
+
+        public int getLargestPartition() {
+            return largestPartition;
+        }
+
+        boolean isBetterThan(Choice other) {
+            return other == null || isBetter(cost, isCandidate, code, other);
+        }
+
+        static boolean isBetter(double cost, boolean isCandidate, int code, Choice other) {
+            if (cost != other.cost) {
+                return cost < other.cost;
+            }
+            if (isCandidate != other.isCandidate) {
+                return isCandidate;
+            }
+            return code < other.code;
+        }
+    }
+
+    private final Cache<SolutionSet, Choice> memo;
+
+    protected PartitionStrategy() {
+        this(DEFAULT_MEMO_CODES);
+    }
+
+    /**
+     * @param maxMemoCodes the most solutions (over all the sets of solutions) to keep in the memo
+     */
+    protected PartitionStrategy(long maxMemoCodes) {
+        this.memo = CacheBuilder.newBuilder()
+                .maximumWeight(maxMemoCodes)
+                .weigher(new Weigher<SolutionSet, Choice>() {
+                    @Override
+                    public int weigh(SolutionSet key, Choice value) {
+                        return key.size();
+                    }
+                })
+                .recordStats()
+                .build();
+    }
+
+    /**
+     * The cost of a guess that splits the solutions into partitions of the given sizes (some of which may be zero).
+     * The guess with the lowest cost is played.
+     */
+    protected abstract double cost(int[] partitionSizes, int numSolutions);
+
+    /**
+     * Knuth's opening of two pegs of one colour followed by two of another, generalised to the first half of the
+     * pegs being one colour and the rest another.
+     */
+    @Override
+    public List<Move> getOpeningMoves(Variant variant) {
+        if (variant.equals(Variant.STANDARD)) {
+            return OPENING_MOVES;
+        }
+        int[] colours = new int[variant.getNumPositions()];
+        for (int pos = variant.getNumPositions() / 2; pos < colours.length; pos++) {
+            colours[pos] = Math.min(1, variant.getNumColours() - 1);
+        }
+        return ImmutableList.of(new Move(variant, colours));
+    }
+
+    @Override
+    public Move nextMove(Solver solver, List<Move> played) {
+        int[] candidates = solver.candidates();
+        ScoreTable table = ScoreTable.get(solver.getVariant());
+        if (candidates.length == 1) {
+            return table.getMove(candidates[0]);
+        }
+        // a played move scores every solution the same, so it is never chosen and needn't be part of the key
+        return table.getMove(choose(table, candidates, played, solver).getCode());
+    }
+
+    /**
+     * Return the best guess for the given solutions, from the memo if possible. If the solver's deadline passes
+     * before every guess has been tried, the best guess tried so far is returned, and isn't memoised.
+     */
+    Choice choose(final ScoreTable table, final int[] candidates, final List<Move> played, final Solver solver) {
+        SolutionSet key = new SolutionSet(table.getVariant(), candidates);
+        while (solver.getDeadline() == Long.MAX_VALUE) {
+            try {
+                return memo.get(key, new Callable<Choice>() {
+                    @Override
+                    public Choice call() {
+                        Evaluation evaluation = new Evaluation(table, candidates, played, solver);
+                        Choice choice = evaluation.choose();
+                        if (evaluation.cutShort) {
+                            throw new CutShortException();
+                        }
+                        return choice;
+                    }
+                });
+            } catch (ExecutionException e) {
+                throw new IllegalStateException(e.getCause());
+            } catch (UncheckedExecutionException e) {
+                if (!(e.getCause() instanceof CutShortException)) {
+                    throw e;
+                }
+                // a deadline was set while the guesses were tried, either this solver's (so loop round to keep to
+                // it) or that of another caller whose solutions were the same (so try again)
+            }
+        }
+        Choice choice = memo.getIfPresent(key);
+        if (choice != null) {
+            return choice;
+        }
+        Evaluation evaluation = new Evaluation(table, candidates, played, solver);
+        choice = evaluation.choose();
+        if (!evaluation.cutShort) {
+            memo.put(key, choice);
+        }
+        return choice;
+    }
+
+    /**
+     * Hit and miss counts for the memo of choices.
+     */
+    public CacheStats getMemoStats() {
+        return memo.stats();
+    }
+
+    /**
+     * The guesses to try for a set of solutions.
+     */
+    private class Evaluation {
+        private final ScoreTable table;
+        private final int[] candidates;
+        private final boolean[] isCandidate;
+        private final int[] guesses;
+        private final int guessesPerTask;
+        private final Solver solver;
+        private volatile boolean cutShort;
+
+        Evaluation(ScoreTable table, int[] candidates, List<Move> played, Solver solver) {
+            this.table = table;
+            this.candidates = candidates;
+            this.isCandidate = new boolean[table.getVariant().getNumCodes()];
+            for (int candidate : candidates) {
+                isCandidate[candidate] = true;
+            }
+            this.guesses = new Symmetry(table.getVariant(), played).representatives();
+            this.guessesPerTask = Math.max(1, MIN_SCORES_PER_TASK / candidates.length);
+            this.solver = solver;
+        }
+
+        /**
+         * Return the best guess. If the deadline passes, the guesses tried in time are each scored against every
+         * candidate, but they may be few, and may be played moves that tell us nothing, so the first candidate (which
+         * could be the secret) is played unless one of them beats it.
+         */
+        Choice choose() {
+            Choice best = new PartitionTask(this, 0, guesses.length).invoke();
+            if (cutShort) {
+                Choice solution = evaluate(candidates[0], new int[table.getVariant().getNumScoreIds()], null);
+                if (solution.isBetterThan(best)) {
+                    best = solution;
+                }
+            }
+            return best;
+        }
+
+        boolean pastDeadline() {
+            long deadline = solver.getDeadline();
+            if (deadline != Long.MAX_VALUE && System.nanoTime() > deadline) {
+                cutShort = true;
+            }
+            return cutShort;
+        }
+
+        /**
+         * Return the choice of the given guess if it is better than the best so far (which may be null), or the best
+         * so far otherwise.
+         */
+        Choice evaluate(int guess, int[] partitionSizes, Choice best) {
+            Arrays.fill(partitionSizes, 0);
+            for (int candidate : candidates) {
+                partitionSizes[table.score(candidate, guess)]++;
+            }
+            int numPartitions = 0;
+            int largest = 0;
+            for (int size : partitionSizes) {
+                if (size > 0) {
+                    numPartitions++;
+                    largest = Math.max(largest, size);
+                }
+            }
+            double cost = cost(partitionSizes, candidates.length);
+            if (best == null || Choice.isBetter(cost, isCandidate[guess], guess, best)) {
+                return new Choice(guess, cost, isCandidate[guess], numPartitions, largest);
+            }
+            return best;
+        }
+    }
+
+    /**
+     * Unwinds the memo's loading of a choice that was cut short, so that it isn't memoised.
+     */
+    private static class CutShortException extends RuntimeException {
+        private static final long serialVersionUID = 1L;
+    }
+
+    /**
+     * Finds the best guess among a range of guesses, or null if the deadline passed before any were tried.
+     */
+    private class PartitionTask extends RecursiveTask<Choice> {
+        private static final long serialVersionUID = 1L;
+
+        private final Evaluation evaluation;
+        private final int start;
+        private final int end;
+
+        PartitionTask(Evaluation evaluation, int start, int end) {
+            this.evaluation = evaluation;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Choice compute() {
+            if (end - start <= evaluation.guessesPerTask) {
+                return best();
+            }
+            int mid = (start + end) >>> 1;
+            PartitionTask left = new PartitionTask(evaluation, start, mid);
+            PartitionTask right = new PartitionTask(evaluation, mid, end);
+            left.fork();
+            Choice rightBest = right.compute();
+            Choice leftBest = left.join();
+            if (rightBest == null) {
+                return leftBest;
+            }
+            return rightBest.isBetterThan(leftBest) ? rightBest : leftBest;
+        }
+
+        private Choice best() {
+            int[] partitionSizes = new int[evaluation.table.getVariant().getNumScoreIds()];
+            Choice best = null;
+            for (int i = start; i < end && !evaluation.pastDeadline(); i++) {
+                best = evaluation.evaluate(evaluation.guesses[i], partitionSizes, best);
+            }
+            return best;
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.tom_e_white.mastermind;
 
+import com.google.common.collect.ImmutableList;
+
 import java.util.List;
 
 /**
@@ -10,18 +12,34 @@ public class Result {
     private boolean won;
     private List<Move> moves;
     private List<Score> scores;
+    private boolean solutionsCountEstimated;
+    private List<Integer> movesOverBudget;
 
     public Result(int solutionsCount, boolean won, List<Move> moves, List<Score> scores) {
+        this(solutionsCount, false, won, moves, scores, ImmutableList.<Integer>of());
+    }
+
+    public Result(int solutionsCount, boolean solutionsCountEstimated, boolean won, List<Move> moves,
+                  List<Score> scores, List<Integer> movesOverBudget) {
         this.solutionsCount = solutionsCount;
+        this.solutionsCountEstimated = solutionsCountEstimated;
         this.won = won;
         this.moves = moves;
         this.scores = scores;
+        this.movesOverBudget = movesOverBudget;
     }
 
     public int getSolutionsCount() {
         return solutionsCount;
     }
 
+    /**
+     * Whether the solutions count was estimated, because counting ran out of time.
+     */
+    public boolean isSolutionsCountEstimated() {
+        return solutionsCountEstimated;
+    }
+
     public boolean hasWon() {
         return won;
     }
@@ -33,4 +51,12 @@ public class Result {
     public List<Score> getScores() {
         return scores;
     }
+
+    /**
+     * The numbers (starting from one) of the moves whose choice ran past the per-move time budget, and so were the
+     * best found in time (where the solver and strategy support it) rather than the result of a complete search.
+     */
+    public List<Integer> getMovesOverBudget() {
+        return movesOverBudget;
+    }
 }
@@ -22,6 +22,7 @@ public class Score {
     
     public static final Score ALL_WHITE = new Score(WHITE, WHITE, WHITE, WHITE);
     
+    private Variant variant;
     private Multiset<Peg> pegs;
     
     public Score(Peg... pegs) {
@@ -29,43 +30,48 @@ public class Score {
     }
 
     public Score(List<Peg> pegs) {
-        Preconditions.checkArgument(pegs.size() <= Game.NUM_POSITIONS);
+        this(Variant.STANDARD, pegs);
+    }
+
+    public Score(Variant variant, Peg... pegs) {
+        this(variant, Arrays.asList(pegs));
+    }
+
+    public Score(Variant variant, List<Peg> pegs) {
+        Preconditions.checkArgument(pegs.size() <= variant.getNumPositions());
+        this.variant = variant;
         this.pegs = EnumMultiset.create(pegs, Peg.class);
-        while (this.pegs.size() < Game.NUM_POSITIONS) {
+        while (this.pegs.size() < variant.getNumPositions()) {
             this.pegs.add(NONE);
         }
     }
 
+    /**
+     * Score a move against a secret. The returned score is shared, so this does not allocate.
+     */
     public static Score score(Move secret, Move move) {
-        List<Peg> pegs = Lists.newArrayList();
-        List<Boolean> matched = Arrays.asList(false, false, false, false);
-        List<Boolean> used = Arrays.asList(false, false, false, false);
-        for (int i = 0; i < Game.NUM_POSITIONS; i++) {
-            if (move.get(i) == secret.get(i)) {
-                pegs.add(WHITE);
-                matched.set(i, true);
-                used.set(i, true);
-            }
-        }
-        for (int i = 0; i < Game.NUM_POSITIONS; i++) {
-            if (matched.get(i)) {
-                continue;
-            }
-            for (int j = 0; j < Game.NUM_POSITIONS; j++) {
-                if (i != j && !used.get(j) && move.get(i) == secret.get(j)) {
-                    pegs.add(RED);
-                    used.set(j, true);
-                    break;
-                }
-            }
-        }
-        return new Score(pegs);
+        ScoreTable table = ScoreTable.get(secret.getVariant());
+        return table.getScore(table.score(secret.code(), move.code()));
     }
 
     public int count(Peg peg) {
         return pegs.count(peg);
     }
 
+    /**
+     * The score packed into an int. See {@link Variant}.
+     */
+    public int id() {
+        return variant.scoreId(count(WHITE), count(RED));
+    }
+
+    /**
+     * Whether every peg is white, i.e. the move was the secret.
+     */
+    public boolean isAllWhite() {
+        return count(WHITE) == pegs.size();
+    }
+
     public Set<List<Peg>> permutations() {
         return Sets.newLinkedHashSet(Collections2.permutations(pegs));
     }
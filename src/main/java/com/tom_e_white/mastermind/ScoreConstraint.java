@@ -0,0 +1,195 @@
+package com.tom_e_white.mastermind;
+
+import org.jacop.constraints.Constraint;
+import org.jacop.core.IntDomain;
+import org.jacop.core.IntVar;
+import org.jacop.core.Store;
+import org.jacop.core.Var;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A JaCoP constraint that the pegs would get a given score for a move. This takes the place of the disjunction over
+ * every permutation of the score built by {@link JaCoPSolver#scoreConstraint(Move, Score)}, and reasons about the
+ * whites and reds directly, by counting how many of each the current domains must and may give.
+ *
+ * <ul>
+ * <li>Whites: if the pegs fixed to the move's colour in the same position already give all the whites, the move's
+ * colour is removed from the other positions. If only as many positions as there are whites can still have the
+ * move's colour, they are all fixed to it.</li>
+ * <li>Whites and reds together: for each colour in the move, the number of pegs of that colour in the secret is
+ * bounded by the pegs fixed to it and the pegs that can still take it, which bounds the total. If the fixed pegs
+ * already give the total, then no more pegs can take a colour that would add to it.</li>
+ * </ul>
+ * The constraint fails as soon as either count is out of reach, and when all the pegs are fixed the bounds are exact.
+ */
+public class ScoreConstraint extends Constraint {
+
+    private static final AtomicInteger idNumber = new AtomicInteger(1); // constraints are built on many threads
+
+    private final IntVar[] pegs;
+    private final int[] guess;
+    private final int[] guessCounts;
+    private final int whites;
+    private final int matches;
+
+    /**
+     * Create a constraint that a move gets the given score. The pegs' colours are the ordinals of {@link Move.Peg}.
+     */
+    public ScoreConstraint(IntVar[] pegs, Move move, Score score) {
+        this.pegs = Arrays.copyOf(pegs, pegs.length);
+        this.guess = new int[pegs.length];
+        this.guessCounts = new int[move.getVariant().getNumColours()];
+        for (int pos = 0; pos < pegs.length; pos++) {
+            guess[pos] = move.get(pos).ordinal();
+            guessCounts[guess[pos]]++;
+        }
+        this.whites = score.count(Score.Peg.WHITE);
+        this.matches = whites + score.count(Score.Peg.RED);
+        this.numberId = idNumber.getAndIncrement();
+        this.numberArgs = (short) pegs.length;
+    }
+
+    @Override
+    public ArrayList<Var> arguments() {
+        ArrayList<Var> variables = new ArrayList<Var>(pegs.length);
+        variables.addAll(Arrays.asList(pegs));
+        return variables;
+    }
+
+    @Override
+    public void consistency(Store store) {
+        do {
+            store.propagationHasOccurred = false;
+            whitesConsistency(store);
+            matchesConsistency(store);
+        } while (store.propagationHasOccurred);
+    }
+
+    private void whitesConsistency(Store store) {
+        int fixed = 0;
+        int possible = 0;
+        for (int pos = 0; pos < pegs.length; pos++) {
+            if (pegs[pos].singleton(guess[pos])) {
+                fixed++;
+            }
+            if (pegs[pos].domain.contains(guess[pos])) {
+                possible++;
+            }
+        }
+        if (fixed > whites || possible < whites) {
+            throw Store.failException;
+        }
+        if (fixed == whites && possible > whites) {
+            for (int pos = 0; pos < pegs.length; pos++) {
+                if (!pegs[pos].singleton() && pegs[pos].domain.contains(guess[pos])) {
+                    pegs[pos].domain.inComplement(store.level, pegs[pos], guess[pos]);
+                }
+            }
+        } else if (possible == whites && fixed < whites) {
+            for (int pos = 0; pos < pegs.length; pos++) {
+                if (pegs[pos].domain.contains(guess[pos])) {
+                    pegs[pos].domain.in(store.level, pegs[pos], guess[pos], guess[pos]);
+                }
+            }
+        }
+    }
+
+    private void matchesConsistency(Store store) {
+        int[] fixedCounts = new int[guessCounts.length];
+        int[] possibleCounts = new int[guessCounts.length];
+        for (IntVar peg : pegs) {
+            if (peg.singleton()) {
+                fixedCounts[peg.value()]++;
+                possibleCounts[peg.value()]++;
+            } else {
+                for (int colour = 0; colour < guessCounts.length; colour++) {
+                    if (guessCounts[colour] > 0 && peg.domain.contains(colour)) {
+                        possibleCounts[colour]++;
+                    }
+                }
+            }
+        }
+        int min = 0;
+        int max = 0;
+        for (int colour = 0; colour < guessCounts.length; colour++) {
+            min += Math.min(guessCounts[colour], fixedCounts[colour]);
+            max += Math.min(guessCounts[colour], possibleCounts[colour]);
+        }
+        if (min > matches || max < matches) {
+            throw Store.failException;
+        }
+        if (min == matches && max > matches) {
+            // any more pegs of a colour that the move has more of would add a match
+            for (IntVar peg : pegs) {
+                if (peg.singleton()) {
+                    continue;
+                }
+                for (int colour = 0; colour < guessCounts.length; colour++) {
+                    if (fixedCounts[colour] < guessCounts[colour] && peg.domain.contains(colour)) {
+                        peg.domain.inComplement(store.level, peg, colour);
+                    }
+                }
+            }
+        }
+    }
+
+    @Override
+    public int getConsistencyPruningEvent(Var var) {
+        return IntDomain.ANY;
+    }
+
+    @Override
+    public void impose(Store store) {
+        for (IntVar peg : pegs) {
+            peg.putModelConstraint(this, getConsistencyPruningEvent(peg));
+        }
+        store.addChanged(this);
+        store.countConstraint();
+    }
+
+    @Override
+    public void removeConstraint() {
+        for (IntVar peg : pegs) {
+            peg.removeConstraint(this);
+        }
+    }
+
+    @Override
+    public boolean satisfied() {
+        int[] secretCounts = new int[guessCounts.length];
+        int w = 0;
+        for (int pos = 0; pos < pegs.length; pos++) {
+            if (!pegs[pos].singleton()) {
+                return false;
+            }
+            int colour = pegs[pos].value();
+            if (colour == guess[pos]) {
+                w++;
+            }
+            secretCounts[colour]++;
+        }
+        int m = 0;
+        for (int colour = 0; colour < guessCounts.length; colour++) {
+            m += Math.min(guessCounts[colour], secretCounts[colour]);
+        }
+        return w == whites && m == matches;
+    }
+
+    @Override
+    public void increaseWeight() {
+        if (increaseWeight) {
+            for (IntVar peg : pegs) {
+                peg.weight++;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return id() + " : score(" + Arrays.toString(pegs) + ", " + Arrays.toString(guess) + ", " + whites + " whites, "
+                + (matches - whites) + " reds)";
+    }
+}
@@ -0,0 +1,251 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.base.Preconditions;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * The {@link Scores.ScoreDelta} histogram of every pair of moves, i.e.
+ * {@link Scores#scoreDelta(java.util.List, java.util.List)} for all of them at once, for studying which pairs of
+ * moves tell the most secrets apart.
+ *
+ * There are too many pairs to keep their histograms in memory as multisets (about 840,000 for the standard game),
+ * so they are computed in blocks of rows in parallel from the {@link ScoreTable}, with a fixed size array of counts
+ * per pair, and each block is written out in order before the next is started.
+ * <pre>
+ * header: int magic, int positions, int colours
+ * pair:   byte number of deltas, then per delta: byte delta index, short number of secrets
+ * </pre>
+ * The pairs are written in order of the first move's code, then the second's, for every second move with a higher
+ * code than the first. A delta index packs a white and a red delta as
+ * <code>(whiteDelta + positions) * (2 * positions + 1) + redDelta + positions</code>.
+ */
+public class ScoreDeltaMatrix {
+
+    static final int MAGIC = 0x4d4d5344; // "MMSD"
+
+    /**
+     * The number of rows (first moves) computed before they are written out.
+     */
+    private static final int ROWS_PER_BLOCK = 64;
+
+    /**
+     * Receives each pair's histogram as the file is read.
+     */
+    public interface Visitor {
+        /**
+         * @param counts the number of secrets for each delta index, which is only valid for the duration of the call
+         */
+        void visit(int move1, int move2, int[] counts);
+    }
+
+    private final Variant variant;
+    private final ScoreTable table;
+    private final int numDeltas;
+    private final int[] deltaIndexes;
+    private final ForkJoinPool pool;
+
+    public ScoreDeltaMatrix(Variant variant) {
+        this(variant, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ScoreDeltaMatrix(Variant variant, int parallelism) {
+        this.variant = variant;
+        this.table = ScoreTable.get(variant);
+        Preconditions.checkArgument(table.isPrecomputed(), "Too many codes in %s game", variant);
+        int numScoreIds = variant.getNumScoreIds();
+        int width = 2 * variant.getNumPositions() + 1;
+        this.numDeltas = width * width;
+        Preconditions.checkArgument(numDeltas <= 256, "Too many pegs in %s game", variant);
+        this.deltaIndexes = new int[numScoreIds * numScoreIds];
+        for (int id1 = 0; id1 < numScoreIds; id1++) {
+            for (int id2 = 0; id2 < numScoreIds; id2++) {
+                deltaIndexes[id1 * numScoreIds + id2] = deltaIndex(variant, Scores.scoreDelta(variant, id1, id2));
+            }
+        }
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    public static int deltaIndex(Variant variant, Scores.ScoreDelta delta) {
+        int p = variant.getNumPositions();
+        return (delta.getWhiteDelta() + p) * (2 * p + 1) + delta.getRedDelta() + p;
+    }
+
+    public static Scores.ScoreDelta scoreDelta(Variant variant, int deltaIndex) {
+        int p = variant.getNumPositions();
+        return new Scores.ScoreDelta(deltaIndex / (2 * p + 1) - p, deltaIndex % (2 * p + 1) - p);
+    }
+
+    /**
+     * Compute every pair's histogram and write it to the given stream.
+     */
+    public void write(OutputStream stream) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream));
+        out.writeInt(MAGIC);
+        out.writeInt(variant.getNumPositions());
+        out.writeInt(variant.getNumColours());
+        int numCodes = variant.getNumCodes();
+        byte[][] rows = new byte[ROWS_PER_BLOCK][];
+        for (int start = 0; start < numCodes; start += ROWS_PER_BLOCK) {
+            int end = Math.min(numCodes, start + ROWS_PER_BLOCK);
+            pool.invoke(new RowsTask(rows, start, start, end));
+            for (int i = 0; i < end - start; i++) {
+                out.write(rows[i]);
+                rows[i] = null;
+            }
+        }
+        out.flush();
+    }
+
+    public void write(File file) throws IOException {
+        FileOutputStream out = new FileOutputStream(file);
+        try {
+            write(out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Read a file written by {@link #write(OutputStream)}, passing each pair to the visitor in turn.
+     */
+    public static Variant read(DataInputStream in, Visitor visitor) throws IOException {
+        if (in.readInt() != MAGIC) {
+            throw new IOException("Not a score delta file");
+        }
+        Variant variant = new Variant(in.readInt(), in.readInt());
+        int width = 2 * variant.getNumPositions() + 1;
+        int[] counts = new int[width * width];
+        int numCodes = variant.getNumCodes();
+        for (int move1 = 0; move1 < numCodes; move1++) {
+            for (int move2 = move1 + 1; move2 < numCodes; move2++) {
+                int n = in.readUnsignedByte();
+                for (int i = 0; i < n; i++) {
+                    counts[in.readUnsignedByte()] = in.readUnsignedShort();
+                }
+                visitor.visit(move1, move2, counts);
+                for (int i = 0; i < counts.length; i++) {
+                    counts[i] = 0;
+                }
+            }
+        }
+        return variant;
+    }
+
+    /**
+     * Computes the encoded rows for a range of first moves, into a block of rows.
+     */
+    private class RowsTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final byte[][] rows;
+        private final int blockStart;
+        private final int start;
+        private final int end;
+
+        RowsTask(byte[][] rows, int blockStart, int start, int end) {
+            this.rows = rows;
+            this.blockStart = blockStart;
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start == 1) {
+                rows[start - blockStart] = row(start);
+                return;
+            }
+            int mid = (start + end) >>> 1;
+            invokeAll(new RowsTask(rows, blockStart, start, mid), new RowsTask(rows, blockStart, mid, end));
+        }
+    }
+
+    private byte[] row(int move1) {
+        int numCodes = variant.getNumCodes();
+        int numScoreIds = variant.getNumScoreIds();
+        // the score ids against move1, premultiplied for indexing deltaIndexes
+        int[] scores1 = new int[numCodes];
+        for (int secret = 0; secret < numCodes; secret++) {
+            scores1[secret] = table.score(move1, secret) * numScoreIds; // scores are symmetric
+        }
+        int[] counts = new int[numDeltas];
+        byte[] buffer = new byte[(numCodes - move1) * (1 + 3 * numDeltas)];
+        int pos = 0;
+        for (int move2 = move1 + 1; move2 < numCodes; move2++) {
+            for (int secret = 0; secret < numCodes; secret++) {
+                counts[deltaIndexes[scores1[secret] + table.score(move2, secret)]]++;
+            }
+            int countPos = pos++;
+            int n = 0;
+            for (int delta = 0; delta < numDeltas; delta++) {
+                int count = counts[delta];
+                if (count > 0) {
+                    buffer[pos++] = (byte) delta;
+                    buffer[pos++] = (byte) (count >>> 8);
+                    buffer[pos++] = (byte) count;
+                    counts[delta] = 0;
+                    n++;
+                }
+            }
+            buffer[countPos] = (byte) n;
+        }
+        byte[] row = new byte[pos];
+        System.arraycopy(buffer, 0, row, 0, pos);
+        return row;
+    }
+
+    /**
+     * Write the score delta matrix to the file given as the first argument, for the standard game or the variant
+     * given as the second argument. Then report the pair of moves that splits the secrets into the most deltas.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: ScoreDeltaMatrix <file> [variant]");
+            System.exit(1);
+        }
+        File file = new File(args[0]);
+        Variant variant = args.length > 1 ? Variant.parse(args[1]) : Variant.STANDARD;
+        long start = System.nanoTime();
+        new ScoreDeltaMatrix(variant).write(file);
+        System.out.printf("Wrote %s (%d bytes) in %.1fs%n", file, file.length(), (System.nanoTime() - start) / 1e9);
+
+        final int[] best = new int[3];
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            read(in, new Visitor() {
+                @Override
+                public void visit(int move1, int move2, int[] counts) {
+                    int n = 0;
+                    for (int count : counts) {
+                        if (count > 0) {
+                            n++;
+                        }
+                    }
+                    if (n > best[2]) {
+                        best[0] = move1;
+                        best[1] = move2;
+                        best[2] = n;
+                    }
+                }
+            });
+        } catch (EOFException e) {
+            throw new IOException("Truncated score delta file " + file);
+        } finally {
+            in.close();
+        }
+        ScoreTable table = ScoreTable.get(variant);
+        System.out.println("Most deltas (" + best[2] + "): " + table.getMove(best[0]) + "/ " + table.getMove(best[1]));
+    }
+}
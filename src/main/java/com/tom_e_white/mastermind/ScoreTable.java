@@ -0,0 +1,169 @@
+package com.tom_e_white.mastermind;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.tom_e_white.mastermind.Score.Peg.RED;
+import static com.tom_e_white.mastermind.Score.Peg.WHITE;
+
+/**
+ * The score for every (secret, move) pair of a {@link Variant}, as score ids indexed by code.
+ *
+ * For small variants, such as the standard game's 1296 codes, the scores are precomputed into a table when the
+ * table for the variant is first used, after which scoring is a single array lookup. Bigger variants have too many
+ * pairs to precompute, so their scores are computed on demand, but still without allocation.
+ */
+public class ScoreTable {
+
+    /**
+     * The most codes for which every score is precomputed. The table has a byte per pair, so this is 16MB.
+     */
+    public static final int MAX_TABLE_CODES = 4096;
+
+    private static final ScoreTable STANDARD = new ScoreTable(Variant.STANDARD);
+    private static final ConcurrentMap<Variant, ScoreTable> TABLES = new ConcurrentHashMap<Variant, ScoreTable>();
+
+    private final Variant variant;
+    private final int numCodes;
+    private final int numPositions;
+    private final int numColours;
+    private final byte[] table;
+    private final Move[] moves;
+    private final Score[] scores;
+
+    private ScoreTable(Variant variant) {
+        this.variant = variant;
+        this.numCodes = variant.getNumCodes();
+        this.numPositions = variant.getNumPositions();
+        this.numColours = variant.getNumColours();
+        scores = new Score[variant.getNumScoreIds()];
+        for (int whites = 0; whites <= numPositions; whites++) {
+            for (int reds = 0; whites + reds <= numPositions; reds++) {
+                scores[variant.scoreId(whites, reds)] = newScore(whites, reds);
+            }
+        }
+        if (numCodes > MAX_TABLE_CODES) {
+            moves = null;
+            table = null;
+            return;
+        }
+        moves = new Move[numCodes];
+        for (int code = 0; code < numCodes; code++) {
+            moves[code] = decode(code);
+        }
+        table = new byte[numCodes * numCodes];
+        for (int secret = 0; secret < numCodes; secret++) {
+            for (int move = 0; move < numCodes; move++) {
+                table[secret * numCodes + move] = (byte) computeScore(secret, move);
+            }
+        }
+    }
+
+    /**
+     * Return the table for the standard game.
+     */
+    public static ScoreTable get() {
+        return STANDARD;
+    }
+
+    /**
+     * Return the table for the given variant, building it if this is the first use.
+     */
+    public static ScoreTable get(Variant variant) {
+        if (variant.equals(Variant.STANDARD)) {
+            return STANDARD;
+        }
+        ScoreTable table = TABLES.get(variant);
+        if (table == null) {
+            table = new ScoreTable(variant);
+            ScoreTable existing = TABLES.putIfAbsent(variant, table);
+            if (existing != null) {
+                table = existing;
+            }
+        }
+        return table;
+    }
+
+    public Variant getVariant() {
+        return variant;
+    }
+
+    /**
+     * Whether the scores are precomputed, rather than computed on each call to {@link #score(int, int)}.
+     */
+    public boolean isPrecomputed() {
+        return table != null;
+    }
+
+    /**
+     * Return the id of the score for the given move against the given secret.
+     */
+    public int score(int secret, int move) {
+        if (table != null) {
+            return table[secret * numCodes + move];
+        }
+        return computeScore(secret, move);
+    }
+
+    /**
+     * Return the (shared) score with the given id.
+     */
+    public Score getScore(int scoreId) {
+        return scores[scoreId];
+    }
+
+    /**
+     * Return the move with the given code. This is shared for precomputed tables.
+     */
+    public Move getMove(int code) {
+        if (moves != null) {
+            return moves[code];
+        }
+        return decode(code);
+    }
+
+    /**
+     * Compute a score id without using the table. The colour counts are packed four bits per colour into longs,
+     * so this doesn't allocate and is safe to call from any thread.
+     */
+    int computeScore(int secret, int move) {
+        long secretColours = 0;
+        long moveColours = 0;
+        int whites = 0;
+        for (int pos = 0; pos < numPositions; pos++) {
+            int s = secret % numColours;
+            int m = move % numColours;
+            if (s == m) {
+                whites++;
+            } else {
+                secretColours += 1L << (s << 2);
+                moveColours += 1L << (m << 2);
+            }
+            secret /= numColours;
+            move /= numColours;
+        }
+        int reds = 0;
+        for (int c = 0; c < numColours; c++) {
+            int shift = c << 2;
+            reds += Math.min((secretColours >>> shift) & 0xf, (moveColours >>> shift) & 0xf);
+        }
+        return variant.scoreId(whites, reds);
+    }
+
+    private Move decode(int code) {
+        int[] colours = new int[numPositions];
+        for (int pos = numPositions - 1; pos >= 0; pos--) {
+            colours[pos] = code % numColours;
+            code /= numColours;
+        }
+        return new Move(variant, colours);
+    }
+
+    private Score newScore(int whites, int reds) {
+        Score.Peg[] pegs = new Score.Peg[whites + reds];
+        for (int i = 0; i < pegs.length; i++) {
+            pegs[i] = i < whites ? WHITE : RED;
+        }
+        return new Score(variant, pegs);
+    }
+}
@@ -1,8 +1,8 @@
 package com.tom_e_white.mastermind;
 
 import com.google.common.collect.*;
+import com.google.common.primitives.Ints;
 
-import java.util.Arrays;
 import java.util.List;
 import java.util.Random;
 import java.util.Set;
@@ -56,10 +56,11 @@ public class Scores {
     }
 
     public static void main(String[] args) {
-        reportHistogramFor(0, 1, 2, 3);
-        reportHistogramFor(0, 1, 2, 2);
-        reportHistogramFor(0, 1, 1, 1);
-        reportHistogramFor(0, 0, 0, 0);
+        // every first move is equivalent to one of these, up to relabelling colours and permuting positions
+        Variant v = Variant.STANDARD;
+        for (int code : new Symmetry(v).representatives()) {
+            reportHistogramFor(v.colour(code, 0), v.colour(code, 1), v.colour(code, 2), v.colour(code, 3));
+        }
         List<Integer> secret = move(2,1,3,3);
         System.out.println(secret);
         System.out.println(score(secret, move(0, 1, 2, 3)));
@@ -74,68 +75,82 @@ public class Scores {
     static Random R = new Random();
 
     public static List<Integer> randomMove() {
-        return move(R.nextInt(6), R.nextInt(6), R.nextInt(6), R.nextInt(6));
+        return randomMove(Variant.STANDARD);
     }
 
-    public static List<Integer> move(int a, int b, int c, int d) {
-        return Arrays.asList(a, b, c, d);
+    public static List<Integer> randomMove(Variant variant) {
+        List<Integer> move = Lists.newArrayList();
+        for (int pos = 0; pos < variant.getNumPositions(); pos++) {
+            move.add(R.nextInt(variant.getNumColours()));
+        }
+        return move;
     }
 
-    public static Multiset<Score.Peg> score(List<Integer> secret, List<Integer> move) {
-        Multiset<Score.Peg> scores = EnumMultiset.create(Score.Peg.class);
-        List<Boolean> matched = Arrays.asList(false, false, false, false);
-        List<Boolean> used = Arrays.asList(false, false, false, false);
-        for (int i = 0; i < Game.NUM_POSITIONS; i++) {
-            if (move.get(i).equals(secret.get(i))) {
-                scores.add(WHITE);
-                matched.set(i, true);
-                used.set(i, true);
-            }
-        }
-        for (int i = 0; i < Game.NUM_POSITIONS; i++) {
-            if (matched.get(i)) {
-                continue;
-            }
-            for (int j = 0; j < Game.NUM_POSITIONS; j++) {
-                if (i != j && !used.get(j) && move.get(i).equals(secret.get(j))) {
-                    scores.add(RED);
-                    used.set(j, true);
-                    break;
-                }
+    public static List<Integer> move(int... colours) {
+        return Ints.asList(colours);
+    }
+
+    private static final int MAX_POSITIONS = 10;
+    private static final Multiset<Score.Peg>[][] SCORES = scores();
+
+    /**
+     * Score multisets indexed by number of whites, then reds. They are enum multisets, so they print reds first.
+     */
+    @SuppressWarnings("unchecked")
+    private static Multiset<Score.Peg>[][] scores() {
+        Multiset<Score.Peg>[][] scores =
+                (Multiset<Score.Peg>[][]) new Multiset<?>[MAX_POSITIONS + 1][MAX_POSITIONS + 1];
+        for (int whites = 0; whites <= MAX_POSITIONS; whites++) {
+            for (int reds = 0; whites + reds <= MAX_POSITIONS; reds++) {
+                Multiset<Score.Peg> score = EnumMultiset.create(Score.Peg.class);
+                score.add(WHITE, whites);
+                score.add(RED, reds);
+                scores[whites][reds] = Multisets.unmodifiableMultiset(score);
             }
         }
         return scores;
     }
 
+    private static Multiset<Score.Peg> multiset(Variant variant, int scoreId) {
+        return SCORES[variant.whites(scoreId)][variant.reds(scoreId)];
+    }
+
+    /**
+     * Score a move against a secret. The returned multiset is shared and immutable.
+     */
+    public static Multiset<Score.Peg> score(List<Integer> secret, List<Integer> move) {
+        return score(Variant.STANDARD, secret, move);
+    }
+
+    public static Multiset<Score.Peg> score(Variant variant, List<Integer> secret, List<Integer> move) {
+        return multiset(variant, ScoreTable.get(variant).score(variant.code(secret), variant.code(move)));
+    }
+
     public static Multiset<Multiset<Score.Peg>> scoreHistogram(int a, int b, int c, int d) {
-        List<Integer> secret = move(a, b, c, d);
+        return scoreHistogram(Variant.STANDARD, move(a, b, c, d));
+    }
+
+    public static Multiset<Multiset<Score.Peg>> scoreHistogram(Variant variant, List<Integer> secretMove) {
+        ScoreTable table = ScoreTable.get(variant);
+        int secret = variant.code(secretMove);
         Multiset<Multiset<Score.Peg>> histogram = HashMultiset.create();
-        for (int i = 0; i < 6; i++) {
-            for (int j = 0; j < 6; j++) {
-                for (int k = 0; k < 6; k++) {
-                    for (int l = 0; l < 6; l++) {
-                        List<Integer> move = move(i, j, k, l);
-                        Multiset<Score.Peg> score = score(secret, move);
-                        histogram.add(score);
-                        //System.out.println(i + "" + j + "" + k + "" + l + "; " + score);
-                    }
-                }
-            }
+        for (int move = 0; move < variant.getNumCodes(); move++) {
+            histogram.add(multiset(variant, table.score(secret, move)));
         }
         return Multisets.copyHighestCountFirst(histogram);
     }
 
     public static Multiset<ScoreDelta> scoreDelta(List<Integer> move1, List<Integer> move2) {
+        return scoreDelta(Variant.STANDARD, move1, move2);
+    }
+
+    public static Multiset<ScoreDelta> scoreDelta(Variant variant, List<Integer> move1, List<Integer> move2) {
+        ScoreTable table = ScoreTable.get(variant);
+        int code1 = variant.code(move1);
+        int code2 = variant.code(move2);
         Multiset<ScoreDelta> histogram = HashMultiset.create();
-        for (int i = 0; i < 6; i++) {
-            for (int j = 0; j < 6; j++) {
-                for (int k = 0; k < 6; k++) {
-                    for (int l = 0; l < 6; l++) {
-                        List<Integer> secret = move(i, j, k, l);
-                        histogram.add(scoreDelta(score(secret, move1), score(secret, move2)));
-                    }
-                }
-            }
+        for (int secret = 0; secret < variant.getNumCodes(); secret++) {
+            histogram.add(scoreDelta(variant, table.score(secret, code1), table.score(secret, code2)));
         }
         return Multisets.copyHighestCountFirst(histogram);
     }
@@ -169,8 +184,12 @@ public class Scores {
         System.out.println();
     }
     public static void reportScoreDeltaFor(List<Integer> secret, List<Integer> move1, List<Integer> move2, int diffPos) {
-        Set<Integer> diffPosNeg = Sets.newTreeSet(Sets.newHashSet(0, 1, 2, 3));
-        diffPosNeg.remove(diffPos);
+        Set<Integer> diffPosNeg = Sets.newTreeSet();
+        for (int pos = 0; pos < move1.size(); pos++) {
+            if (pos != diffPos) {
+                diffPosNeg.add(pos);
+            }
+        }
 
         ScoreDelta scoreDelta = scoreDelta(score(secret, move1), score(secret, move2));
         System.out.println(secret);
@@ -178,8 +197,8 @@ public class Scores {
         System.out.println(move2);
         int rd = scoreDelta.getRedDelta();
         int wd = scoreDelta.getWhiteDelta();
-        int oldCol = move1.get(3);
-        int newCol = move2.get(3);
+        int oldCol = move1.get(diffPos);
+        int newCol = move2.get(diffPos);
         if (wd == 0) {
             if (rd == 0) {
                 System.out.println("EITHER " + oldCol + " and " + newCol + " don't appear anywhere OR " + oldCol + " and " + newCol + " both appear in pos " + diffPosNeg);
@@ -211,4 +230,9 @@ public class Scores {
         return new ScoreDelta(score2.count(WHITE) - score1.count(WHITE), score2.count(RED) - score1.count(RED));
     }
 
+    public static ScoreDelta scoreDelta(Variant variant, int scoreId1, int scoreId2) {
+        return new ScoreDelta(variant.whites(scoreId2) - variant.whites(scoreId1),
+                variant.reds(scoreId2) - variant.reds(scoreId1));
+    }
+
 }
@@ -0,0 +1,156 @@
+package com.tom_e_white.mastermind;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A solver for variants with too many codes to enumerate, such as 8 pegs of 10 colours. It keeps nothing but the
+ * moves and their scores, and finds solutions by walking through the codes in order, checking each against every
+ * move.
+ *
+ * Searches resume from the last solution found: the codes before it were inconsistent with the moves at the time,
+ * so they still are. Over a whole game, finding the first solution each time therefore visits each code at most
+ * once. Counting or listing all the solutions needs a full pass over the codes.
+ *
+ * The clock is checked every {@link #CODES_PER_CLOCK_CHECK} codes against the {@link #setDeadline(long) deadline}.
+ * A count that runs out of time is extrapolated from the codes seen so far, and a list of candidates that runs out of
+ * time has the solutions found so far. A search that runs out of time still carries on to the next solution, since
+ * every code it has skipped is ruled out by the scores, and it reports that it {@link #hitDeadline() hit the
+ * deadline}.
+ */
+public class SequentialSolver implements Solver {
+
+    private static final int CODES_PER_CLOCK_CHECK = 1024;
+
+    private final Variant variant;
+    private final ScoreTable table;
+    private int[] moves = new int[8];
+    private int[] scores = new int[8];
+    private int numMoves;
+    private int cursor;
+    private volatile long deadline = Long.MAX_VALUE;
+    private boolean hitDeadline;
+
+    public SequentialSolver(Variant variant) {
+        this.variant = variant;
+        this.table = ScoreTable.get(variant);
+    }
+
+    @Override
+    public Variant getVariant() {
+        return variant;
+    }
+
+    @Override
+    public void add(Move move, Score score) {
+        if (numMoves == moves.length) {
+            moves = Arrays.copyOf(moves, numMoves * 2);
+            scores = Arrays.copyOf(scores, numMoves * 2);
+        }
+        moves[numMoves] = move.code();
+        scores[numMoves] = score.id();
+        numMoves++;
+    }
+
+    @Override
+    public void reset() {
+        numMoves = 0;
+        cursor = 0;
+        deadline = Long.MAX_VALUE;
+        hitDeadline = false;
+    }
+
+    @Override
+    public Move search(List<Move> played) {
+        hitDeadline = false;
+        int start = cursor;
+        for (int code = start; code < variant.getNumCodes(); code++) {
+            if (!hitDeadline && pastDeadline(code - start)) {
+                hitDeadline = true;
+            }
+            if (isSolution(code)) {
+                cursor = code;
+                Move move = table.getMove(code);
+                if (!played.contains(move)) {
+                    return move;
+                }
+            }
+        }
+        throw new IllegalStateException("No unplayed solutions found for " + this);
+    }
+
+    @Override
+    public int countSolutions() {
+        hitDeadline = false;
+        int count = 0;
+        for (int code = cursor; code < variant.getNumCodes(); code++) {
+            if (code > cursor && pastDeadline(code - cursor)) {
+                hitDeadline = true;
+                long estimate = (long) count * (variant.getNumCodes() - cursor) / (code - cursor);
+                return (int) Math.max(1, estimate);
+            }
+            if (isSolution(code)) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private boolean pastDeadline(int scanned) {
+        return scanned % CODES_PER_CLOCK_CHECK == 0 && deadline != Long.MAX_VALUE && System.nanoTime() > deadline;
+    }
+
+    @Override
+    public int[] candidates() {
+        hitDeadline = false;
+        int[] candidates = new int[16];
+        int n = 0;
+        for (int code = cursor; code < variant.getNumCodes(); code++) {
+            if (n > 0 && pastDeadline(code - cursor)) {
+                hitDeadline = true;
+                break;
+            }
+            if (isSolution(code)) {
+                if (n == candidates.length) {
+                    candidates = Arrays.copyOf(candidates, n * 2);
+                }
+                candidates[n++] = code;
+            }
+        }
+        return Arrays.copyOf(candidates, n);
+    }
+
+    @Override
+    public void setDeadline(long deadline) {
+        this.deadline = deadline;
+    }
+
+    @Override
+    public long getDeadline() {
+        return deadline;
+    }
+
+    @Override
+    public boolean hitDeadline() {
+        return hitDeadline;
+    }
+
+    @Override
+    public long getNodes() {
+        return 0;
+    }
+
+    @Override
+    public long getWrongDecisions() {
+        return 0;
+    }
+
+    private boolean isSolution(int code) {
+        for (int i = numMoves - 1; i >= 0; i--) {
+            if (table.score(code, moves[i]) != scores[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
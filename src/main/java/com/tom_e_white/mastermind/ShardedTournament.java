@@ -0,0 +1,175 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Range;
+import com.google.common.collect.RangeSet;
+import com.google.common.collect.TreeRangeSet;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Plays every secret of a variant with one strategy, split across several JVMs (on one machine or several sharing a
+ * filesystem). Each process plays shards of consecutive secrets and writes each shard's {@link Statistics} to a file
+ * in the same layout as {@link StrategyTournament}'s checkpoints, so the two can share a directory. A process can be
+ * given a shard to play, or it can work through the shards in turn, claiming each by creating a claim file next to
+ * it, which fails if another process got there first. There are no services to set up: the directory is the only
+ * thing the processes share.
+ *
+ * When the processes have finished, {@link #merge()} combines the shard files, checking that no secret was played
+ * twice and that each shard has a game for every one of its secrets, and reports any secrets that haven't been
+ * played yet. A worker that dies leaves a claim file without a shard file, so delete the claim files before running
+ * the workers again to replay those shards.
+ */
+public class ShardedTournament {
+
+    private static final Pattern SHARD_FILE = Pattern.compile("shard-(\\d+)-(\\d+)\\.stats");
+
+    private final Variant variant;
+    private final String strategyName;
+    private final File dir;
+    private final int parallelism;
+    private Strategy strategy;
+    private RangeSet<Integer> missing;
+
+    public ShardedTournament(File dir, Variant variant, String strategyName) {
+        this(dir, variant, strategyName, Runtime.getRuntime().availableProcessors());
+    }
+
+    public ShardedTournament(File dir, Variant variant, String strategyName, int parallelism) {
+        this.variant = variant;
+        this.strategyName = strategyName;
+        this.dir = StrategyTournament.checkpointDir(dir, variant, strategyName);
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Play the secrets with codes from <code>start</code> (inclusive) to <code>end</code> (exclusive), and write
+     * their statistics to a shard file, replacing any that is there already. Each shard gets its own worker pool,
+     * but the strategy (and so its memo) is shared by every shard this object plays.
+     */
+    public Statistics play(int start, int end) throws IOException {
+        if (start < 0 || end > variant.getNumCodes() || start >= end) {
+            throw new IllegalArgumentException("Invalid shard " + start + "-" + end + " for " + variant);
+        }
+        if (strategy == null) {
+            strategy = Strategies.forName(strategyName); // shared by all the games, so memos are shared too
+        }
+        Statistics statistics;
+        try (Tournament tournament = new Tournament(variant, new Tournament.GameFactory() {
+            @Override
+            public Game newGame() {
+                return StrategyTournament.newGame(variant, strategy);
+            }
+        }, parallelism)) {
+            statistics = tournament.run(start, end);
+        }
+        StrategyTournament.writeCheckpoint(shardFile(start, end), statistics);
+        return statistics;
+    }
+
+    /**
+     * Play every shard of the given size that hasn't been played or claimed by another process, and return the
+     * number of shards played.
+     */
+    public int work(int shardSize) throws IOException {
+        if (!dir.isDirectory() && !dir.mkdirs() && !dir.isDirectory()) {
+            throw new IOException("Can't create shard directory " + dir);
+        }
+        int shardsPlayed = 0;
+        for (int start = 0; start < variant.getNumCodes(); start += shardSize) {
+            int end = Math.min(variant.getNumCodes(), start + shardSize);
+            File claim = new File(dir, "shard-" + start + "-" + end + ".claim");
+            if (shardFile(start, end).exists() || !claim.createNewFile()) {
+                continue;
+            }
+            play(start, end);
+            shardsPlayed++;
+        }
+        return shardsPlayed;
+    }
+
+    /**
+     * Combine the statistics from all the shard files. The secrets not covered by any shard are available from
+     * {@link #getMissing()} afterwards.
+     *
+     * @throws IOException if the shard files can't be read, if two of them overlap, or if one doesn't have a game
+     * for every secret in its range
+     */
+    public Statistics merge() throws IOException {
+        RangeSet<Integer> played = TreeRangeSet.create();
+        Statistics statistics = new Statistics();
+        File[] files = dir.listFiles();
+        for (File file : files == null ? new File[0] : files) {
+            Matcher matcher = SHARD_FILE.matcher(file.getName());
+            if (!matcher.matches()) {
+                continue;
+            }
+            Range<Integer> shard = Range.closedOpen(Integer.parseInt(matcher.group(1)),
+                    Integer.parseInt(matcher.group(2)));
+            if (!played.subRangeSet(shard).isEmpty()) {
+                throw new IOException("Shard " + file + " overlaps with another shard");
+            }
+            Statistics shardStatistics = StrategyTournament.readCheckpoint(file, variant);
+            int expectedGames = shard.upperEndpoint() - shard.lowerEndpoint();
+            if (shardStatistics.getGames() != expectedGames) {
+                throw new IOException("Shard " + file + " has " + shardStatistics.getGames() + " games, not "
+                        + expectedGames);
+            }
+            played.add(shard);
+            statistics.merge(shardStatistics);
+        }
+        missing = played.complement().subRangeSet(Range.closedOpen(0, variant.getNumCodes()));
+        return statistics;
+    }
+
+    /**
+     * The ranges of secrets that weren't covered by the shards found by the last call to {@link #merge()}.
+     */
+    public List<Range<Integer>> getMissing() {
+        return Lists.newArrayList(missing.asRanges());
+    }
+
+    File shardFile(int start, int end) {
+        return new File(dir, StrategyTournament.checkpointName(start, end));
+    }
+
+    /**
+     * Arguments: a command, the shard directory, the variant (e.g. 6x8) and the strategy name, then
+     * <ul>
+     *     <li><code>play start end</code> to play the secrets with codes in the range [start, end),</li>
+     *     <li><code>work [shard size]</code> to play shards (default 1024 secrets) until none are left unclaimed, or</li>
+     *     <li><code>merge</code> to print the statistics combined from the shards played so far.</li>
+     * </ul>
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: ShardedTournament play <dir> <variant> <strategy> <start> <end>");
+            System.err.println("       ShardedTournament work <dir> <variant> <strategy> [shard size]");
+            System.err.println("       ShardedTournament merge <dir> <variant> <strategy>");
+            System.exit(1);
+        }
+        String command = args[0];
+        ShardedTournament tournament = new ShardedTournament(new File(args[1]), Variant.parse(args[2]), args[3]);
+        long start = System.nanoTime();
+        if (command.equals("play")) {
+            tournament.play(Integer.parseInt(args[4]), Integer.parseInt(args[5])).report(System.out);
+        } else if (command.equals("work")) {
+            int shards = tournament.work(args.length > 4 ? Integer.parseInt(args[4]) : 1024);
+            System.out.println("Played " + shards + " shards in " + (System.nanoTime() - start) / 1000000 + "ms");
+        } else if (command.equals("merge")) {
+            tournament.merge().report(System.out);
+            List<Range<Integer>> missing = tournament.getMissing();
+            if (!missing.isEmpty()) {
+                System.err.println("Secrets not played yet: " + missing);
+                System.exit(2);
+            }
+        } else {
+            System.err.println("Unknown command: " + command);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.tom_e_white.mastermind;
+
+import java.util.Arrays;
+
+/**
+ * A set of solutions of a variant, as its codes in order, compared by value, for use as a memo key.
+ */
+final class SolutionSet {
+    private final Variant variant;
+    private final int[] codes;
+    private final int hash;
+
+    SolutionSet(Variant variant, int[] codes) {
+        this.variant = variant;
+        this.codes = codes;
+        this.hash = 31 * variant.hashCode() + Arrays.hashCode(codes);
+    }
+
+    int size() {
+        return codes.length;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof SolutionSet)) {
+            return false;
+        }
+        SolutionSet other = (SolutionSet) o;
+        return hash == other.hash && variant.equals(other.variant) && Arrays.equals(codes, other.codes);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+}
@@ -0,0 +1,71 @@
+package com.tom_e_white.mastermind;
+
+import java.util.List;
+
+/**
+ * Keeps track of the solutions (possible secrets) that are consistent with the moves made so far in a game.
+ */
+public interface Solver {
+
+    /**
+     * The variant of the game being solved.
+     */
+    Variant getVariant();
+
+    /**
+     * Constrain the solutions with a move and the score it was given.
+     */
+    void add(Move move, Score score);
+
+    /**
+     * Remove all the moves and clear the deadline, so that the solver can be used for another game.
+     */
+    void reset();
+
+    /**
+     * Return the first solution, in the order the solver finds them, that is not one of the moves already played.
+     * That is code order, except for the JaCoP solvers with a {@link JaCoPSolver.Heuristic} other than input order.
+     */
+    Move search(List<Move> played);
+
+    /**
+     * Return the number of solutions.
+     */
+    int countSolutions();
+
+    /**
+     * Return the codes of all the solutions, in code order, or (if the deadline passes first) of at least one of
+     * them.
+     */
+    int[] candidates();
+
+    /**
+     * Set a deadline, as a {@link System#nanoTime()} value, for the searches, counts and candidate lists that
+     * follow, or {@link Long#MAX_VALUE} for none. Strategies that do their own work on the candidates should keep to
+     * it too. Solvers that are always quick may ignore the deadline altogether.
+     *
+     * The deadline may be set from another thread to cut short work that is under way, such as a speculative search
+     * that is no longer needed, so solvers and strategies read it as they go rather than once at the start.
+     */
+    void setDeadline(long deadline);
+
+    long getDeadline();
+
+    /**
+     * Whether the last search, count or candidate list was cut short by the deadline, in which case the search
+     * returned a solution found in time, the count was an estimate, or the candidates were only some of the
+     * solutions.
+     */
+    boolean hitDeadline();
+
+    /**
+     * Return the number of search nodes visited so far, over all the moves, or zero for solvers that don't search.
+     */
+    long getNodes();
+
+    /**
+     * Return the number of wrong decisions (choices that led to no solutions) made so far in search, or zero for
+     * solvers that don't search.
+     */
+    long getWrongDecisions();
+}
@@ -0,0 +1,140 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Works out the next move for every score that a move could get, in the background while the move is being scored
+ * (typically by a human). Each possible score gets its own solver, built by replaying the game's moves, so when the
+ * real score arrives the game can take over that solver and play the next move straight away. The other branches
+ * are cancelled: those that haven't started never run, and those that have are stopped at their next deadline check,
+ * since their solver's deadline is set to the time they were cancelled. A branch's search keeps to the per-move time
+ * budget, counted from when the branch starts, just as it would if the game searched for the move itself.
+ */
+class Speculation {
+
+    /**
+     * A solver with a hypothetical score added, the move the strategy would play next, and whether choosing it ran
+     * past the time budget.
+     */
+    static class Branch {
+        final Solver solver;
+        final Move nextMove;
+        final boolean overBudget;
+
+        Branch(Solver solver, Move nextMove, boolean overBudget) {
+            this.solver = solver;
+            this.nextMove = nextMove;
+            this.overBudget = overBudget;
+        }
+    }
+
+    /**
+     * Creates solvers for the branches.
+     */
+    interface SolverFactory {
+        Solver newSolver();
+    }
+
+    private final List<ListenableFuture<Branch>> branches;
+
+    /**
+     * The solver for each score's branch, once the branch has started, so that it can be stopped.
+     */
+    private final AtomicReferenceArray<Solver> solvers;
+
+    /**
+     * The id of the score passed to {@link #take(Score)}, or -1 until then.
+     */
+    private volatile int takenScoreId = -1;
+
+    /**
+     * Start working out the next move for each score that <code>move</code> could get from the given solutions,
+     * giving each branch <code>moveBudgetNanos</code> to choose its move (or unlimited time if it is 0).
+     */
+    Speculation(ListeningExecutorService executor, final SolverFactory solverFactory, final Strategy strategy,
+                List<Move> moves, List<Score> scores, final Move move, int[] candidates, final long moveBudgetNanos) {
+        final List<Move> playedMoves = ImmutableList.<Move>builder().addAll(moves).build();
+        final List<Score> playedScores = ImmutableList.copyOf(scores);
+        final List<Move> played = ImmutableList.<Move>builder().addAll(moves).add(move).build();
+        Variant variant = move.getVariant();
+        ScoreTable table = ScoreTable.get(variant);
+        boolean[] possible = new boolean[variant.getNumScoreIds()];
+        for (int candidate : candidates) {
+            possible[table.score(candidate, move.code())] = true;
+        }
+        possible[variant.scoreId(variant.getNumPositions(), 0)] = false; // the game is over
+        branches = Lists.newArrayListWithCapacity(possible.length);
+        solvers = new AtomicReferenceArray<Solver>(possible.length);
+        for (int scoreId = 0; scoreId < possible.length; scoreId++) {
+            if (!possible[scoreId]) {
+                branches.add(null);
+                continue;
+            }
+            final int id = scoreId;
+            final Score score = table.getScore(scoreId);
+            branches.add(executor.submit(new Callable<Branch>() {
+                @Override
+                public Branch call() {
+                    Solver solver = solverFactory.newSolver();
+                    solvers.set(id, solver);
+                    for (int i = 0; i < playedMoves.size(); i++) {
+                        solver.add(playedMoves.get(i), playedScores.get(i));
+                    }
+                    solver.add(move, score);
+                    long deadline = moveBudgetNanos == 0 ? Long.MAX_VALUE : System.nanoTime() + moveBudgetNanos;
+                    solver.setDeadline(deadline);
+                    int taken = takenScoreId;
+                    if (taken != -1 && taken != id) {
+                        solver.setDeadline(System.nanoTime()); // lost while starting, after take() stopped it
+                    }
+                    try {
+                        Move nextMove = strategy.nextMove(solver, played);
+                        return new Branch(solver, nextMove, moveBudgetNanos != 0
+                                && (solver.hitDeadline() || System.nanoTime() > deadline));
+                    } finally {
+                        solver.setDeadline(Long.MAX_VALUE);
+                    }
+                }
+            }));
+        }
+    }
+
+    /**
+     * Cancel the branches for every score but the one given, stopping those that are running, and return the branch
+     * for it, waiting for it to finish if necessary. Return null if there is no branch for the score or it failed.
+     */
+    Branch take(Score score) {
+        takenScoreId = score.id();
+        ListenableFuture<Branch> branch = branches.get(score.id());
+        for (int id = 0; id < branches.size(); id++) {
+            ListenableFuture<Branch> other = branches.get(id);
+            if (other != null && other != branch) {
+                other.cancel(true);
+                Solver solver = solvers.get(id);
+                if (solver != null) {
+                    solver.setDeadline(System.nanoTime());
+                }
+            }
+        }
+        if (branch == null) {
+            return null;
+        }
+        try {
+            return branch.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            branch.cancel(true);
+            return null;
+        } catch (ExecutionException e) {
+            return null;
+        }
+    }
+}
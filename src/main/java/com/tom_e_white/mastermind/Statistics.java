@@ -0,0 +1,204 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.collect.*;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+
+/**
+ * Statistics over a number of games: histograms of the number of solutions left before the last move and of the
+ * number of moves played, and the games that were lost. Statistics gathered separately (e.g. by different threads)
+ * can be combined with {@link #merge(Statistics)}, and saved with {@link #write(DataOutput)} to be combined later.
+ */
+public class Statistics {
+
+    private int games;
+    private int numLost;
+    private double totalMoves;
+    private long wallTimeNanos;
+    private Multiset<Integer> solutionsHist = HashMultiset.create();
+    private SortedMultiset<Integer> totalMovesHist = TreeMultiset.create();
+    private Multiset<List<Score>> scoresHist = HashMultiset.create();
+    private List<List<Move>> lostMoves = Lists.newArrayList();
+    private List<List<Score>> lostScores = Lists.newArrayList();
+
+    /**
+     * Add the result of a single game.
+     */
+    public void add(Result result) {
+        games++;
+        solutionsHist.add(result.getSolutionsCount());
+        totalMovesHist.add(result.getMoves().size());
+        List<Score> scores = Lists.newArrayList(result.getScores());
+        scores.remove(scores.size() - 1); // remove last move
+        scoresHist.add(scores);
+        totalMoves += result.getMoves().size();
+        if (!result.hasWon()) {
+            numLost++;
+            lostMoves.add(result.getMoves());
+            lostScores.add(scores);
+        }
+    }
+
+    /**
+     * Add all the games from the given statistics to this one.
+     */
+    public Statistics merge(Statistics other) {
+        games += other.games;
+        numLost += other.numLost;
+        totalMoves += other.totalMoves;
+        solutionsHist.addAll(other.solutionsHist);
+        totalMovesHist.addAll(other.totalMovesHist);
+        scoresHist.addAll(other.scoresHist);
+        lostMoves.addAll(other.lostMoves);
+        lostScores.addAll(other.lostScores);
+        wallTimeNanos += other.wallTimeNanos;
+        return this;
+    }
+
+    public int getGames() {
+        return games;
+    }
+
+    public int getNumLost() {
+        return numLost;
+    }
+
+    public double getAverageMoves() {
+        return totalMoves / games;
+    }
+
+    public Multiset<Integer> getSolutionsHistogram() {
+        return solutionsHist;
+    }
+
+    public SortedMultiset<Integer> getMovesHistogram() {
+        return totalMovesHist;
+    }
+
+    public List<List<Move>> getLostMoves() {
+        return lostMoves;
+    }
+
+    public long getWallTimeNanos() {
+        return wallTimeNanos;
+    }
+
+    void setWallTimeNanos(long wallTimeNanos) {
+        this.wallTimeNanos = wallTimeNanos;
+    }
+
+    public double getGamesPerSecond() {
+        return games / (wallTimeNanos / 1e9);
+    }
+
+    /**
+     * Write the statistics in a compact binary form, with moves and scores as codes and ids.
+     */
+    public void write(DataOutput out) throws IOException {
+        out.writeInt(games);
+        out.writeInt(numLost);
+        out.writeDouble(totalMoves);
+        out.writeLong(wallTimeNanos);
+        writeHistogram(out, solutionsHist);
+        writeHistogram(out, totalMovesHist);
+        out.writeInt(scoresHist.entrySet().size());
+        for (Multiset.Entry<List<Score>> entry : scoresHist.entrySet()) {
+            out.writeInt(entry.getCount());
+            writeScores(out, entry.getElement());
+        }
+        out.writeInt(lostMoves.size());
+        for (List<Move> moves : lostMoves) {
+            out.writeByte(moves.size());
+            for (Move move : moves) {
+                out.writeInt(move.code());
+            }
+        }
+        out.writeInt(lostScores.size());
+        for (List<Score> scores : lostScores) {
+            writeScores(out, scores);
+        }
+    }
+
+    /**
+     * Read statistics written by {@link #write(DataOutput)} for games of the given variant.
+     */
+    public static Statistics read(DataInput in, Variant variant) throws IOException {
+        ScoreTable table = ScoreTable.get(variant);
+        Statistics statistics = new Statistics();
+        statistics.games = in.readInt();
+        statistics.numLost = in.readInt();
+        statistics.totalMoves = in.readDouble();
+        statistics.wallTimeNanos = in.readLong();
+        readHistogram(in, statistics.solutionsHist);
+        readHistogram(in, statistics.totalMovesHist);
+        for (int i = in.readInt(); i > 0; i--) {
+            int count = in.readInt();
+            statistics.scoresHist.add(readScores(in, table), count);
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            List<Move> moves = Lists.newArrayList();
+            for (int j = in.readUnsignedByte(); j > 0; j--) {
+                moves.add(table.getMove(in.readInt()));
+            }
+            statistics.lostMoves.add(moves);
+        }
+        for (int i = in.readInt(); i > 0; i--) {
+            statistics.lostScores.add(readScores(in, table));
+        }
+        return statistics;
+    }
+
+    private static void writeHistogram(DataOutput out, Multiset<Integer> histogram) throws IOException {
+        out.writeInt(histogram.entrySet().size());
+        for (Multiset.Entry<Integer> entry : histogram.entrySet()) {
+            out.writeInt(entry.getElement());
+            out.writeInt(entry.getCount());
+        }
+    }
+
+    private static void readHistogram(DataInput in, Multiset<Integer> histogram) throws IOException {
+        for (int i = in.readInt(); i > 0; i--) {
+            int element = in.readInt();
+            histogram.add(element, in.readInt());
+        }
+    }
+
+    private static void writeScores(DataOutput out, List<Score> scores) throws IOException {
+        out.writeByte(scores.size());
+        for (Score score : scores) {
+            out.writeByte(score.id());
+        }
+    }
+
+    private static List<Score> readScores(DataInput in, ScoreTable table) throws IOException {
+        List<Score> scores = Lists.newArrayList();
+        for (int i = in.readUnsignedByte(); i > 0; i--) {
+            scores.add(table.getScore(in.readUnsignedByte()));
+        }
+        return scores;
+    }
+
+    public void report(PrintStream out) {
+        out.println("Histogram:");
+        Multiset<Integer> hist = Multisets.copyHighestCountFirst(solutionsHist);
+        out.println(hist);
+        double total = 0;
+        for (Integer i : hist.elementSet()) {
+            total += (hist.count(i) * 1.0) / i;
+        }
+        out.println("Total: " + total + ", " + (100 * total / games) + "%");
+        out.println("Lost: " + numLost);
+        for (List<Score> scores : lostScores) {
+            out.println(scoresHist.count(scores));
+        }
+        out.println("Moves: " + totalMovesHist);
+        out.println("Avg moves: " + getAverageMoves());
+        if (wallTimeNanos > 0) {
+            out.println("Time: " + (wallTimeNanos / 1000000) + "ms, " + getGamesPerSecond() + " games/s");
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.collect.ImmutableList;
+
+import java.util.List;
+
+/**
+ * Looks up strategies by name, for command line tools.
+ */
+public class Strategies {
+
+    public static final List<String> NAMES = ImmutableList.of("first", "minimax", "entropy", "expected", "optimal");
+
+    private Strategies() {
+    }
+
+    public static Strategy forName(String name) {
+        if (name.equals("first")) {
+            return new FirstSolutionStrategy();
+        } else if (name.equals("minimax")) {
+            return new MinimaxStrategy();
+        } else if (name.equals("entropy")) {
+            return new EntropyStrategy();
+        } else if (name.equals("expected")) {
+            return new ExpectedSizeStrategy();
+        } else if (name.equals("optimal")) {
+            return new OptimalStrategy();
+        }
+        throw new IllegalArgumentException("Unknown strategy " + name + ", must be one of " + NAMES);
+    }
+}
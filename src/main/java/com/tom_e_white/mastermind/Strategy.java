@@ -0,0 +1,19 @@
+package com.tom_e_white.mastermind;
+
+import java.util.List;
+
+/**
+ * Decides which move to play next.
+ */
+public interface Strategy {
+
+    /**
+     * The moves to play, in order, at the start of every game of the given variant, regardless of their scores.
+     */
+    List<Move> getOpeningMoves(Variant variant);
+
+    /**
+     * Choose the next move, given the solver for the game so far and the moves already played.
+     */
+    Move nextMove(Solver solver, List<Move> played);
+}
@@ -0,0 +1,217 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.base.Predicates;
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Iterables;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compares strategies by playing each of them against every secret of a variant, for variants big enough that a
+ * full run takes hours. The secrets are split into shards of consecutive codes, and each shard is played by each
+ * strategy in turn, with the games in a shard spread over a {@link Tournament}'s worker pool.
+ *
+ * The statistics for each completed shard are saved as a checkpoint file in a directory, so if the run is stopped
+ * it picks up where it left off when it is run again with the same directory and shard size, skipping the shards
+ * that have checkpoints. The final comparison is made from the checkpoints, so it's the same however many times the
+ * run was restarted.
+ */
+public class StrategyTournament {
+
+    /**
+     * The strategies played unless others are named: all but the optimal one, whose search of the whole game tree
+     * doesn't finish on the big variants this is for.
+     */
+    static final List<String> DEFAULT_STRATEGIES = ImmutableList.copyOf(Iterables.filter(Strategies.NAMES,
+            Predicates.not(Predicates.equalTo("optimal"))));
+
+    private final Variant variant;
+    private final List<String> strategyNames;
+    private final File checkpointDir;
+    private final int shardSize;
+    private final int parallelism;
+    private final Map<String, Strategy> strategies = Maps.newLinkedHashMap();
+    private int shardsPlayed;
+
+    public StrategyTournament(Variant variant, List<String> strategyNames, File checkpointDir, int shardSize) {
+        this(variant, strategyNames, checkpointDir, shardSize, Runtime.getRuntime().availableProcessors());
+    }
+
+    public StrategyTournament(Variant variant, List<String> strategyNames, File checkpointDir, int shardSize,
+                              int parallelism) {
+        this.variant = variant;
+        this.strategyNames = ImmutableList.copyOf(strategyNames);
+        this.checkpointDir = checkpointDir;
+        this.shardSize = shardSize;
+        this.parallelism = parallelism;
+        for (String name : strategyNames) {
+            strategies.put(name, Strategies.forName(name)); // shared by all the games, so memos are shared too
+        }
+    }
+
+    /**
+     * The number of shards actually played (rather than read from checkpoints) by the last call to {@link #run()}.
+     */
+    public int getShardsPlayed() {
+        return shardsPlayed;
+    }
+
+    /**
+     * Play every shard that doesn't have a checkpoint, then return the combined statistics for each strategy.
+     */
+    public Map<String, Statistics> run() throws IOException {
+        shardsPlayed = 0;
+        Map<String, Tournament> tournaments = Maps.newLinkedHashMap();
+        for (final String name : strategyNames) {
+            tournaments.put(name, new Tournament(variant, new Tournament.GameFactory() {
+                @Override
+                public Game newGame() {
+                    return StrategyTournament.newGame(variant, strategies.get(name));
+                }
+            }, parallelism));
+        }
+        try {
+            Map<String, Statistics> results = Maps.newLinkedHashMap();
+            for (String name : strategyNames) {
+                results.put(name, new Statistics());
+            }
+            for (int start = 0; start < variant.getNumCodes(); start += shardSize) {
+                int end = Math.min(variant.getNumCodes(), start + shardSize);
+                for (String name : strategyNames) {
+                    File checkpoint = checkpointFile(name, start, end);
+                    Statistics statistics;
+                    if (checkpoint.exists()) {
+                        statistics = readCheckpoint(checkpoint, variant);
+                    } else {
+                        statistics = tournaments.get(name).run(start, end);
+                        writeCheckpoint(checkpoint, statistics);
+                        shardsPlayed++;
+                    }
+                    results.get(name).merge(statistics);
+                }
+            }
+            return results;
+        } finally {
+            for (Tournament tournament : tournaments.values()) {
+                tournament.close();
+            }
+        }
+    }
+
+    /**
+     * Return the strategy instance used for the games with the given name.
+     */
+    public Strategy getStrategy(String name) {
+        return strategies.get(name);
+    }
+
+    static Game newGame(Variant variant, Strategy strategy) {
+        Game game = new Game();
+        game.setVariant(variant);
+        game.setStrategy(strategy);
+        game.setEngine(variant.getNumCodes() > ScoreTable.MAX_TABLE_CODES ? Game.Engine.SEQUENTIAL
+                : Game.Engine.BITSET);
+        return game;
+    }
+
+    File checkpointFile(String strategyName, int start, int end) {
+        return new File(checkpointDir(checkpointDir, variant, strategyName), checkpointName(start, end));
+    }
+
+    /**
+     * The directory that holds the checkpoints for a strategy on a variant.
+     */
+    static File checkpointDir(File dir, Variant variant, String strategyName) {
+        return new File(new File(dir, variant.toString()), strategyName);
+    }
+
+    static String checkpointName(int start, int end) {
+        return "shard-" + start + "-" + end + ".stats";
+    }
+
+    static Statistics readCheckpoint(File file, Variant variant) throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+        try {
+            return Statistics.read(in, variant);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Write a checkpoint to a temporary file then rename it, so that a partly written checkpoint is never mistaken
+     * for a complete one.
+     */
+    static void writeCheckpoint(File file, Statistics statistics) throws IOException {
+        File dir = file.getParentFile();
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            throw new IOException("Can't create checkpoint directory " + dir);
+        }
+        File tmp = new File(dir, file.getName() + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)));
+        try {
+            statistics.write(out);
+        } finally {
+            out.close();
+        }
+        if (!tmp.renameTo(file)) {
+            throw new IOException("Can't rename " + tmp + " to " + file);
+        }
+    }
+
+    /**
+     * Print a table comparing the strategies. Timings are left out, since they depend on how the run was split
+     * across restarts.
+     */
+    public static void report(Map<String, Statistics> results, PrintStream out) {
+        out.printf("%-10s %8s %6s %10s %6s  %s%n", "Strategy", "Games", "Lost", "Avg moves", "Max", "Moves");
+        for (Map.Entry<String, Statistics> entry : results.entrySet()) {
+            Statistics statistics = entry.getValue();
+            out.printf("%-10s %8d %6d %10.4f %6d  %s%n", entry.getKey(), statistics.getGames(),
+                    statistics.getNumLost(), statistics.getAverageMoves(),
+                    statistics.getMovesHistogram().lastEntry().getElement(), statistics.getMovesHistogram());
+        }
+    }
+
+    /**
+     * Arguments: the checkpoint directory, then optionally the variant (default 5x8), a comma-separated list of
+     * strategies (default all of them but optimal), and the number of secrets per shard (default 1024).
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 1) {
+            System.err.println("Usage: StrategyTournament <checkpoint dir> [variant] [strategies] [shard size]");
+            System.exit(1);
+        }
+        File dir = new File(args[0]);
+        Variant variant = args.length > 1 ? Variant.parse(args[1]) : new Variant(5, 8);
+        List<String> names = args.length > 2 ? Lists.newArrayList(Splitter.on(',').split(args[2]))
+                : DEFAULT_STRATEGIES;
+        int shardSize = args.length > 3 ? Integer.parseInt(args[3]) : 1024;
+        StrategyTournament tournament = new StrategyTournament(variant, names, dir, shardSize);
+        long start = System.nanoTime();
+        Map<String, Statistics> results = tournament.run();
+        System.out.println("Played " + tournament.getShardsPlayed() + " shards in "
+                + (System.nanoTime() - start) / 1000000 + "ms");
+        report(results, System.out);
+        for (String name : names) {
+            Strategy strategy = tournament.getStrategy(name);
+            if (strategy instanceof PartitionStrategy) {
+                System.out.printf("%s memo hit rate: %.3f%n", name,
+                        ((PartitionStrategy) strategy).getMemoStats().hitRate());
+            }
+        }
+    }
+}
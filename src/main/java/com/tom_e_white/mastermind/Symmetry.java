@@ -0,0 +1,195 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.collect.Lists;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The symmetries of a game that are left unbroken by the moves played so far. Relabelling the colours and permuting
+ * the positions of both the secret and a move doesn't change the move's score, so a relabelling and permutation
+ * that maps each played move to itself also maps the solutions to themselves, and any two guesses that it maps to
+ * each other split the solutions the same way. Only one guess from each such equivalence class needs to be
+ * considered: before any moves have been played, there are only five classes of first move in the standard game
+ * (0000, 0001, 0011, 0012 and 0123) out of 1296 codes.
+ *
+ * The representative of a class is its lowest code, so choosing among the representatives with a preference for
+ * lower codes gives the same result as choosing among all the codes.
+ */
+public class Symmetry {
+
+    private final Variant variant;
+    private final List<Move> history;
+
+    /**
+     * For each position permutation that can be extended to a symmetry, the position in the code that each position
+     * moves to.
+     */
+    private final List<int[]> permutations = Lists.newArrayList();
+
+    /**
+     * For each permutation, the colour that each colour must be relabelled to, or -1 if it is free to be relabelled
+     * to any colour not already taken.
+     */
+    private final List<int[]> relabellings = Lists.newArrayList();
+
+    /**
+     * The symmetries of a game with no moves played.
+     */
+    public Symmetry(Variant variant) {
+        this(variant, Lists.<Move>newArrayList());
+    }
+
+    /**
+     * The symmetries of a game with the given moves played.
+     */
+    public Symmetry(Variant variant, List<Move> history) {
+        this.variant = variant;
+        this.history = history;
+        int[] permutation = new int[variant.getNumPositions()];
+        for (int pos = 0; pos < permutation.length; pos++) {
+            permutation[pos] = pos;
+        }
+        do {
+            int[] relabelling = relabelling(permutation);
+            if (relabelling != null) {
+                permutations.add(permutation.clone());
+                relabellings.add(relabelling);
+            }
+        } while (nextPermutation(permutation));
+    }
+
+    /**
+     * Return the relabelling forced by mapping each played move to itself when its positions are permuted, or null
+     * if the moves can't be mapped to themselves.
+     */
+    private int[] relabelling(int[] permutation) {
+        int numColours = variant.getNumColours();
+        int[] relabelling = new int[numColours];
+        Arrays.fill(relabelling, -1);
+        boolean[] taken = new boolean[numColours];
+        for (Move move : history) {
+            int code = move.code();
+            for (int pos = 0; pos < permutation.length; pos++) {
+                int from = variant.colour(code, pos);
+                int to = variant.colour(code, permutation[pos]);
+                if (relabelling[from] == -1) {
+                    if (taken[to]) {
+                        return null;
+                    }
+                    relabelling[from] = to;
+                    taken[to] = true;
+                } else if (relabelling[from] != to) {
+                    return null;
+                }
+            }
+        }
+        return relabelling;
+    }
+
+    /**
+     * Step to the next permutation in lexicographic order, returning false if this was the last one.
+     */
+    private static boolean nextPermutation(int[] a) {
+        int i = a.length - 2;
+        while (i >= 0 && a[i] >= a[i + 1]) {
+            i--;
+        }
+        if (i < 0) {
+            return false;
+        }
+        int j = a.length - 1;
+        while (a[j] <= a[i]) {
+            j--;
+        }
+        swap(a, i, j);
+        for (int k = i + 1, l = a.length - 1; k < l; k++, l--) {
+            swap(a, k, l);
+        }
+        return true;
+    }
+
+    private static void swap(int[] a, int i, int j) {
+        int t = a[i];
+        a[i] = a[j];
+        a[j] = t;
+    }
+
+    /**
+     * The number of position permutations that are part of some symmetry.
+     */
+    public int getNumPermutations() {
+        return permutations.size();
+    }
+
+    /**
+     * Return the lowest code that the given code can be mapped to.
+     */
+    public int canonical(int code) {
+        int numPositions = variant.getNumPositions();
+        int numColours = variant.getNumColours();
+        int[] pegs = new int[numPositions];
+        for (int pos = numPositions - 1, c = code; pos >= 0; pos--, c /= numColours) {
+            pegs[pos] = c % numColours;
+        }
+        int[] inverse = new int[numPositions];
+        int[] colours = new int[numColours];
+        boolean[] taken = new boolean[numColours];
+        int best = Integer.MAX_VALUE;
+        for (int p = 0; p < permutations.size(); p++) {
+            int[] permutation = permutations.get(p);
+            int[] relabelling = relabellings.get(p);
+            for (int pos = 0; pos < numPositions; pos++) {
+                inverse[permutation[pos]] = pos;
+            }
+            System.arraycopy(relabelling, 0, colours, 0, numColours);
+            Arrays.fill(taken, false);
+            for (int colour : relabelling) {
+                if (colour != -1) {
+                    taken[colour] = true;
+                }
+            }
+            // fill in the image from the most significant peg, giving each free colour the lowest label left
+            int image = 0;
+            int nextFree = 0;
+            for (int pos = 0; pos < numPositions; pos++) {
+                int from = pegs[inverse[pos]];
+                if (colours[from] == -1) {
+                    while (taken[nextFree]) {
+                        nextFree++;
+                    }
+                    colours[from] = nextFree;
+                    taken[nextFree] = true;
+                }
+                image = image * numColours + colours[from];
+            }
+            if (image < best) {
+                best = image;
+            }
+        }
+        return best;
+    }
+
+    public Move canonical(Move move) {
+        return ScoreTable.get(variant).getMove(canonical(move.code()));
+    }
+
+    public boolean isCanonical(int code) {
+        return canonical(code) == code;
+    }
+
+    /**
+     * Return the lowest code of each equivalence class, in order.
+     */
+    public int[] representatives() {
+        int numCodes = variant.getNumCodes();
+        int[] representatives = new int[numCodes];
+        int n = 0;
+        for (int code = 0; code < numCodes; code++) {
+            if (isCanonical(code)) {
+                representatives[n++] = code;
+            }
+        }
+        return Arrays.copyOf(representatives, n);
+    }
+}
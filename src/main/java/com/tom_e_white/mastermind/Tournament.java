@@ -0,0 +1,150 @@
+package com.tom_e_white.mastermind;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Plays a game against every possible secret, spread across a fork/join pool, and gathers {@link Statistics} on
+ * how well the computer played. Each task keeps its own statistics, which are merged as the tasks complete, so
+ * threads don't contend on shared histograms. The pool's threads are kept for the tournament's later runs until it
+ * is closed.
+ */
+public class Tournament implements Closeable {
+
+    /**
+     * Creates a game for a run of consecutive secrets. Games are stateful, so each task gets its own, and plays it
+     * against each of its secrets in turn, so the game's solver is reset and reused rather than built again for every
+     * secret. The game learns each secret only from the scorer it plays against.
+     */
+    public interface GameFactory {
+        Game newGame();
+    }
+
+    public static final GameFactory DEFAULT_GAME_FACTORY = new GameFactory() {
+        @Override
+        public Game newGame() {
+            return new Game();
+        }
+    };
+
+    private static final int SECRETS_PER_TASK = 16;
+
+    private final Variant variant;
+    private final GameFactory gameFactory;
+    private final ForkJoinPool pool;
+
+    public Tournament() {
+        this(DEFAULT_GAME_FACTORY);
+    }
+
+    public Tournament(GameFactory gameFactory) {
+        this(Variant.STANDARD, gameFactory);
+    }
+
+    public Tournament(Variant variant, GameFactory gameFactory) {
+        this(variant, gameFactory, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Create a tournament for the given variant. The factory must create games of the same variant.
+     */
+    public Tournament(Variant variant, GameFactory gameFactory, int parallelism) {
+        this.variant = variant;
+        this.gameFactory = gameFactory;
+        this.pool = new ForkJoinPool(parallelism);
+    }
+
+    /**
+     * Play every secret and return the combined statistics.
+     */
+    public Statistics run() {
+        return run(0, variant.getNumCodes());
+    }
+
+    /**
+     * Play the secrets with codes from <code>start</code> (inclusive) to <code>end</code> (exclusive).
+     */
+    public Statistics run(int start, int end) {
+        long startTime = System.nanoTime();
+        Statistics statistics = pool.invoke(new PlayTask(start, end));
+        statistics.setWallTimeNanos(System.nanoTime() - startTime);
+        return statistics;
+    }
+
+    /**
+     * Shut down the worker pool.
+     */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    private class PlayTask extends RecursiveTask<Statistics> {
+        private static final long serialVersionUID = 1L;
+
+        private final int start;
+        private final int end;
+
+        PlayTask(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+
+        @Override
+        protected Statistics compute() {
+            if (end - start <= SECRETS_PER_TASK) {
+                Statistics statistics = new Statistics();
+                ScoreTable table = ScoreTable.get(variant);
+                Game game = gameFactory.newGame();
+                for (int code = start; code < end; code++) {
+                    statistics.add(game.play(new ComputerScorer(table.getMove(code))));
+                }
+                return statistics;
+            }
+            int mid = (start + end) >>> 1;
+            PlayTask left = new PlayTask(start, mid);
+            PlayTask right = new PlayTask(mid, end);
+            left.fork();
+            Statistics statistics = right.compute();
+            return left.join().merge(statistics);
+        }
+    }
+
+    /**
+     * Play every secret of the standard game, or the variant given as an argument, e.g. 5x8, and report statistics
+     * for the games and for each move. If the system property <code>mastermind.log</code> is set, the games are
+     * appended to a {@link GameLog} in that file.
+     */
+    public static void main(String[] args) throws IOException {
+        Variant variant = args.length > 0 ? Variant.parse(args[0]) : Variant.STANDARD;
+        MoveStatistics moveStatistics = new MoveStatistics();
+        String logFile = System.getProperty("mastermind.log");
+        Statistics statistics;
+        try (GameLogWriter log = logFile == null ? null : new GameLogWriter(new File(logFile), variant);
+             Tournament tournament = new Tournament(variant, newGameFactory(variant, moveStatistics, log))) {
+            statistics = tournament.run();
+        }
+        statistics.report(System.out);
+        moveStatistics.report(System.out);
+    }
+
+    private static GameFactory newGameFactory(final Variant variant, final MoveStatistics moveStatistics,
+                                              final GameLogWriter log) {
+        return new GameFactory() {
+            @Override
+            public Game newGame() {
+                Game game = new Game();
+                game.setVariant(variant);
+                game.setMetrics(moveStatistics);
+                game.setLog(log);
+                if (variant.getNumCodes() > ScoreTable.MAX_TABLE_CODES) {
+                    game.setEngine(Game.Engine.SEQUENTIAL);
+                }
+                return game;
+            }
+        };
+    }
+}
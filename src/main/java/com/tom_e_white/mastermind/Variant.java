@@ -0,0 +1,149 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.base.Preconditions;
+import com.google.common.collect.ImmutableSet;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * The size of a game: the number of pegs in a move, the number of colours each peg can be, and the number of moves
+ * the guesser has to find the secret. The standard game is four pegs of six colours, with eight moves.
+ *
+ * A variant also defines how moves and scores are packed into ints. A move's code treats its pegs as the digits of
+ * a base {@link #getNumColours()} number with the first peg most significant, so codes run from 0 to
+ * {@link #getNumCodes()} - 1 in the same order that the solvers enumerate solutions. A score's id is made from the
+ * number of white and red pegs.
+ */
+public class Variant {
+
+    public static final Variant STANDARD = new Variant(4, 6, 8);
+
+    private final int numPositions;
+    private final int numColours;
+    private final int maxMoves;
+    private final int numCodes;
+    private final Set<Integer> positions;
+
+    /**
+     * A variant where the guesser has two moves per peg.
+     */
+    public Variant(int numPositions, int numColours) {
+        this(numPositions, numColours, 2 * numPositions);
+    }
+
+    public Variant(int numPositions, int numColours, int maxMoves) {
+        Preconditions.checkArgument(numPositions > 0 && numPositions <= 10, "Positions must be from 1 to 10");
+        Preconditions.checkArgument(numColours > 0 && numColours <= Move.Peg.values().length,
+                "Colours must be from 1 to %s", Move.Peg.values().length);
+        Preconditions.checkArgument(Math.pow(numColours, numPositions) <= Integer.MAX_VALUE, "Too many codes");
+        this.numPositions = numPositions;
+        this.numColours = numColours;
+        this.maxMoves = maxMoves;
+        int numCodes = 1;
+        for (int pos = 0; pos < numPositions; pos++) {
+            numCodes *= numColours;
+        }
+        this.numCodes = numCodes;
+        ImmutableSet.Builder<Integer> builder = ImmutableSet.builder();
+        for (int pos = 0; pos < numPositions; pos++) {
+            builder.add(pos);
+        }
+        this.positions = builder.build();
+    }
+
+    /**
+     * Parse a variant of the form <i>positions</i>x<i>colours</i>, e.g. 5x8.
+     */
+    public static Variant parse(String s) {
+        String[] parts = s.toLowerCase().split("x");
+        Preconditions.checkArgument(parts.length == 2, "Variant must be of the form 4x6: %s", s);
+        Variant variant = new Variant(Integer.parseInt(parts[0]), Integer.parseInt(parts[1]));
+        return variant.equals(STANDARD) ? STANDARD : variant;
+    }
+
+    public int getNumPositions() {
+        return numPositions;
+    }
+
+    public int getNumColours() {
+        return numColours;
+    }
+
+    public int getMaxMoves() {
+        return maxMoves;
+    }
+
+    public int getNumCodes() {
+        return numCodes;
+    }
+
+    public int getNumScoreIds() {
+        return (numPositions + 1) * (numPositions + 1);
+    }
+
+    /**
+     * The positions 0 to {@link #getNumPositions()} - 1, in order.
+     */
+    public Set<Integer> getPositions() {
+        return positions;
+    }
+
+    public int scoreId(int whites, int reds) {
+        return whites * (numPositions + 1) + reds;
+    }
+
+    public int whites(int scoreId) {
+        return scoreId / (numPositions + 1);
+    }
+
+    public int reds(int scoreId) {
+        return scoreId % (numPositions + 1);
+    }
+
+    /**
+     * Return the peg colour (as an ordinal) at the given position of a code.
+     */
+    public int colour(int code, int pos) {
+        for (int p = numPositions - 1; p > pos; p--) {
+            code /= numColours;
+        }
+        return code % numColours;
+    }
+
+    /**
+     * Return the code for a move given as a list of colour ordinals.
+     */
+    public int code(List<Integer> colours) {
+        Preconditions.checkArgument(colours.size() == numPositions);
+        int code = 0;
+        for (int colour : colours) {
+            code = code * numColours + colour;
+        }
+        return code;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+
+        Variant variant = (Variant) o;
+
+        return numPositions == variant.numPositions && numColours == variant.numColours
+                && maxMoves == variant.maxMoves;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = numPositions;
+        result = 31 * result + numColours;
+        result = 31 * result + maxMoves;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return numPositions + "x" + numColours;
+    }
+}
@@ -0,0 +1,110 @@
+package com.tom_e_white.mastermind;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class TestDecisionTree {
+
+    @Test
+    public void testTreeGamesMatchSolverGames() throws IOException {
+        File file = File.createTempFile("mastermind", ".tree");
+        file.deleteOnExit();
+        Strategy strategy = new FirstSolutionStrategy();
+        new DecisionTreeBuilder(Variant.STANDARD, strategy).build(file);
+        DecisionTree tree = DecisionTree.load(file, Variant.STANDARD, strategy, JaCoPSolver.Heuristic.INPUT_ORDER);
+        assertNotNull(tree);
+        assertEquals(1296, tree.getSolutionsCount(tree.getRoot()));
+
+        Statistics expected = play(null, Game.Engine.BITSET, JaCoPSolver.Heuristic.INPUT_ORDER);
+        Statistics actual = play(tree, Game.Engine.BITSET, JaCoPSolver.Heuristic.INPUT_ORDER);
+        assertEquals(0, actual.getNumLost());
+        assertEquals(expected.getMovesHistogram(), actual.getMovesHistogram());
+        assertEquals(expected.getSolutionsHistogram(), actual.getSolutionsHistogram());
+    }
+
+    /**
+     * A JaCoP game uses the tree only if its heuristic finds solutions in code order, as the tree's solver did.
+     * Otherwise its moves would differ from the ones its own search finds.
+     */
+    @Test
+    public void testTreeFollowsTheJaCoPHeuristic() throws IOException {
+        File file = File.createTempFile("mastermind", ".tree");
+        file.deleteOnExit();
+        Strategy strategy = new FirstSolutionStrategy();
+        new DecisionTreeBuilder(Variant.STANDARD, strategy).build(file);
+        DecisionTree tree = DecisionTree.load(file, Variant.STANDARD, strategy, JaCoPSolver.Heuristic.INPUT_ORDER);
+        assertNotNull(tree);
+
+        Statistics inputOrder = play(null, Game.Engine.JACOP, JaCoPSolver.Heuristic.INPUT_ORDER);
+        assertEquals(inputOrder.getMovesHistogram(),
+                play(tree, Game.Engine.JACOP, JaCoPSolver.Heuristic.INPUT_ORDER).getMovesHistogram());
+
+        Statistics middleValue = play(null, Game.Engine.JACOP, JaCoPSolver.Heuristic.MIDDLE_VALUE);
+        assertFalse(inputOrder.getMovesHistogram().equals(middleValue.getMovesHistogram()));
+        assertEquals(middleValue.getMovesHistogram(),
+                play(tree, Game.Engine.JACOP, JaCoPSolver.Heuristic.MIDDLE_VALUE).getMovesHistogram());
+    }
+
+    @Test
+    public void testStaleTreeIsIgnored() throws IOException {
+        File file = File.createTempFile("mastermind", ".tree");
+        file.deleteOnExit();
+        new DecisionTreeBuilder(Variant.STANDARD, new FirstSolutionStrategy()).build(file);
+        assertNull(DecisionTree.load(file, Variant.STANDARD, new MinimaxStrategy(),
+                JaCoPSolver.Heuristic.INPUT_ORDER));
+        assertNull(DecisionTree.load(file, Variant.STANDARD, new FirstSolutionStrategy(),
+                JaCoPSolver.Heuristic.MAX_VALUE));
+        assertNull(DecisionTree.load(new File(file.getPath() + ".missing"), Variant.STANDARD,
+                new FirstSolutionStrategy(), JaCoPSolver.Heuristic.INPUT_ORDER));
+    }
+
+    @Test
+    public void testCorruptTreeIsIgnored() throws IOException {
+        File file = File.createTempFile("mastermind", ".tree");
+        file.deleteOnExit();
+        new DecisionTreeBuilder(Variant.STANDARD, new FirstSolutionStrategy()).build(file);
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.setLength(raf.length() - 3); // truncate the last node
+        } finally {
+            raf.close();
+        }
+        assertNull(DecisionTree.load(file, Variant.STANDARD, new FirstSolutionStrategy(),
+                JaCoPSolver.Heuristic.INPUT_ORDER));
+
+        new DecisionTreeBuilder(Variant.STANDARD, new FirstSolutionStrategy()).build(file);
+        raf = new RandomAccessFile(file, "rw");
+        try {
+            raf.seek(DecisionTree.HEADER_SIZE + 10); // the root's first child offset
+            raf.writeInt(Integer.MAX_VALUE);
+        } finally {
+            raf.close();
+        }
+        assertNull(DecisionTree.load(file, Variant.STANDARD, new FirstSolutionStrategy(),
+                JaCoPSolver.Heuristic.INPUT_ORDER));
+    }
+
+    private static Statistics play(final DecisionTree tree, final Game.Engine engine,
+                                   final JaCoPSolver.Heuristic heuristic) {
+        try (Tournament tournament = new Tournament(new Tournament.GameFactory() {
+            @Override
+            public Game newGame() {
+                Game game = new Game();
+                game.setEngine(engine);
+                game.setHeuristic(heuristic, 42);
+                game.setDecisionTree(tree);
+                return game;
+            }
+        })) {
+            return tournament.run();
+        }
+    }
+}
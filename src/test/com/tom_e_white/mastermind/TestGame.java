@@ -1,9 +1,21 @@
 package com.tom_e_white.mastermind;
 
 import com.google.common.collect.*;
+import com.google.common.primitives.Ints;
+import com.google.common.util.concurrent.ListenableFuture;
+import com.google.common.util.concurrent.ListeningExecutorService;
+import com.google.common.util.concurrent.MoreExecutors;
 import org.junit.Test;
 
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class TestGame {
 
@@ -21,7 +33,7 @@ public class TestGame {
                 for (int k = 0; k < 6; k++) {
                     for (int l = 0; l < 6; l++) {
                         Move secret = new Move(i, j, k, l);
-                        Game game = new TestedGame(secret);
+                        Game game = new TestedGame();
                         Result result = game.play(new ComputerScorer(secret));
                         solutionsHist.add(result.getSolutionsCount());
                         totalMovesHist.add(result.getMoves().size());
@@ -54,14 +66,247 @@ public class TestGame {
         System.out.println("Avg moves: " +(totalMoves/1296));
     }
     
+    @Test
+    public void testAllGamesInParallel() {
+        Statistics statistics;
+        try (Tournament tournament = new Tournament(new Tournament.GameFactory() {
+            @Override
+            public Game newGame() {
+                return new TestedGame();
+            }
+        })) {
+            statistics = tournament.run();
+        }
+        statistics.report(System.out);
+        assertEquals(1296, statistics.getGames());
+        assertEquals(0, statistics.getNumLost());
+    }
+
     @Test
     public void testSingleGame() {
         Move secret = new Move(0, 4, 5, 5);
-        Game game = new TestedGame(secret);
+        Game game = new TestedGame();
         Result result = game.play(new ComputerScorer(secret));
         System.out.println("Setter: " + secret);
         for (int i = 0; i < result.getMoves().size(); i++) {
             System.out.println((i + 1) + ". " + result.getMoves().get(i) + "[" + result.getScores().get(i) + "]");
         }
     }
+
+    /**
+     * Play every game at once on two threads, and check the results match games played synchronously.
+     */
+    @Test
+    public void testAllGamesAsync() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            ScoreTable table = ScoreTable.get();
+            List<ListenableFuture<Result>> results = Lists.newArrayList();
+            for (int code = 0; code < Variant.STANDARD.getNumCodes(); code++) {
+                Game game = new Game();
+                game.setEngine(Game.Engine.BITSET);
+                results.add(game.playAsync(new ComputerScorer(table.getMove(code)), executor));
+            }
+            for (int code = 0; code < Variant.STANDARD.getNumCodes(); code++) {
+                Move secret = table.getMove(code);
+                Game game = new Game();
+                game.setEngine(Game.Engine.BITSET);
+                Result expected = game.play(new ComputerScorer(secret));
+                Result actual = results.get(code).get();
+                assertTrue(actual.hasWon());
+                assertEquals(expected.getMoves(), actual.getMoves());
+                assertEquals(expected.getSolutionsCount(), actual.getSolutionsCount());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    @Test
+    public void testSpeculativeGamesMatchGames() {
+        ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(4));
+        try {
+            ScoreTable table = ScoreTable.get();
+            for (Strategy strategy : Lists.newArrayList(new FirstSolutionStrategy(), new MinimaxStrategy())) {
+                for (int code = 0; code < Variant.STANDARD.getNumCodes(); code += 7) {
+                    Move secret = table.getMove(code);
+                    Game game = new Game();
+                    game.setEngine(Game.Engine.BITSET);
+                    game.setStrategy(strategy);
+                    Result expected = game.play(new ComputerScorer(secret));
+                    game.setSpeculationExecutor(executor);
+                    Result actual = game.play(new ComputerScorer(secret));
+                    assertEquals(expected.getMoves(), actual.getMoves());
+                    assertEquals(expected.getSolutionsCount(), actual.getSolutionsCount());
+                }
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Branches for the scores that weren't given are stopped when the speculation is taken, even if they are running.
+     * Here each losing branch runs until its deadline passes, and it has none until it is stopped.
+     */
+    @Test
+    public void testSpeculationStopsLosingBranches() throws InterruptedException {
+        final Move secret = new Move(1, 2, 3, 4);
+        Move move = new Move(0, 1, 2, 3);
+        Solver reference = new BitSetSolver();
+        int numBranches = countScores(reference.candidates(), move);
+        final CountDownLatch started = new CountDownLatch(numBranches - 1);
+        final CountDownLatch stopped = new CountDownLatch(numBranches - 1);
+        Strategy strategy = new Strategy() {
+            @Override
+            public List<Move> getOpeningMoves(Variant variant) {
+                return ImmutableList.of();
+            }
+
+            @Override
+            public Move nextMove(Solver solver, List<Move> played) {
+                if (Ints.contains(solver.candidates(), secret.code())) {
+                    return solver.search(played);
+                }
+                started.countDown();
+                while (solver.getDeadline() == Long.MAX_VALUE || System.nanoTime() <= solver.getDeadline()) {
+                    Thread.yield();
+                }
+                stopped.countDown();
+                return solver.search(played);
+            }
+        };
+        ListeningExecutorService executor = MoreExecutors.listeningDecorator(
+                Executors.newFixedThreadPool(numBranches));
+        try {
+            Speculation speculation = new Speculation(executor, new Speculation.SolverFactory() {
+                @Override
+                public Solver newSolver() {
+                    return new BitSetSolver();
+                }
+            }, strategy, ImmutableList.<Move>of(), ImmutableList.<Score>of(), move, reference.candidates(), 0);
+            assertTrue(started.await(10, TimeUnit.SECONDS));
+            Speculation.Branch branch = speculation.take(Score.score(secret, move));
+            reference.add(move, Score.score(secret, move));
+            assertEquals(reference.search(ImmutableList.of(move)), branch.nextMove);
+            assertTrue(stopped.await(10, TimeUnit.SECONDS));
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static int countScores(int[] candidates, Move move) {
+        Set<Integer> scoreIds = Sets.newHashSet();
+        for (int candidate : candidates) {
+            scoreIds.add(ScoreTable.get().score(candidate, move.code()));
+        }
+        scoreIds.remove(Score.ALL_WHITE.id());
+        return scoreIds.size();
+    }
+
+    @Test
+    public void testSpeculativeGamesKeepToMoveBudget() {
+        ListeningExecutorService executor = MoreExecutors.listeningDecorator(Executors.newFixedThreadPool(4));
+        try {
+            ScoreTable table = ScoreTable.get();
+            for (int code = 0; code < Variant.STANDARD.getNumCodes(); code += 37) {
+                Move secret = table.getMove(code);
+                Game game = new Game();
+                game.setEngine(Game.Engine.BITSET);
+                game.setStrategy(new MinimaxStrategy());
+                game.setMoveBudget(1, TimeUnit.NANOSECONDS);
+                Result expected = game.play(new ComputerScorer(secret));
+                game.setSpeculationExecutor(executor);
+                Result actual = game.play(new ComputerScorer(secret));
+                assertEquals(expected.getMoves(), actual.getMoves());
+                assertEquals(expected.getMovesOverBudget(), actual.getMovesOverBudget());
+            }
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    /**
+     * Play every secret with one game per engine, so that its solver is reset and reused, and check the results
+     * match new games.
+     */
+    @Test
+    public void testReusedGamesMatchNewGames() {
+        ScoreTable table = ScoreTable.get();
+        for (Game.Engine engine : Game.Engine.values()) {
+            Game reused = new Game();
+            reused.setEngine(engine);
+            for (int code = 0; code < Variant.STANDARD.getNumCodes(); code++) {
+                Move secret = table.getMove(code);
+                Game game = new Game();
+                game.setEngine(engine);
+                Result expected = game.play(new ComputerScorer(secret));
+                Result actual = reused.play(new ComputerScorer(secret));
+                assertEquals(engine + " " + secret, expected.getMoves(), actual.getMoves());
+                assertEquals(engine + " " + secret, expected.getSolutionsCount(), actual.getSolutionsCount());
+            }
+        }
+    }
+
+    @Test
+    public void testMoveBudget() {
+        Variant variant = new Variant(5, 8);
+        Move secret = new Move(variant, 7, 7, 7, 7, 6);
+        Game game = new Game();
+        game.setVariant(variant);
+        game.setEngine(Game.Engine.SEQUENTIAL);
+        Result unlimited = game.play(new ComputerScorer(secret));
+        assertTrue(unlimited.hasWon());
+        assertTrue(unlimited.getMovesOverBudget().isEmpty());
+        assertTrue(!unlimited.isSolutionsCountEstimated());
+
+        game.setMoveBudget(1, TimeUnit.NANOSECONDS);
+        Result limited = game.play(new ComputerScorer(secret));
+        assertTrue(!limited.getMovesOverBudget().isEmpty());
+        assertTrue(limited.getMovesOverBudget().get(0) > 1); // the opening move isn't searched for
+        assertEquals(unlimited.getMoves(), limited.getMoves()); // searches still only play solutions
+
+        game.setMoveBudget(0, TimeUnit.NANOSECONDS); // the reused solver mustn't keep the old deadline
+        Result unlimitedAgain = game.play(new ComputerScorer(secret));
+        assertEquals(unlimited.getMoves(), unlimitedAgain.getMoves());
+        assertTrue(unlimitedAgain.getMovesOverBudget().isEmpty());
+        assertTrue(!unlimitedAgain.isSolutionsCountEstimated());
+    }
+
+    /**
+     * On the JaCoP path the budget stops the search at the first node after the deadline, so every search and count
+     * is cut short. The moves after the opening ones still come from the solutions, found by a scan from where the
+     * search stopped.
+     */
+    @Test
+    public void testJaCoPMoveBudget() {
+        Variant variant = new Variant(5, 8);
+        Move secret = new Move(variant, 7, 7, 7, 7, 6);
+        Game game = new Game();
+        game.setVariant(variant);
+        game.setEngine(Game.Engine.JACOP);
+        Result unlimited = game.play(new ComputerScorer(secret));
+        assertTrue(unlimited.hasWon());
+        assertTrue(unlimited.getMovesOverBudget().isEmpty());
+
+        game.setMoveBudget(1, TimeUnit.NANOSECONDS);
+        Result limited = game.play(new ComputerScorer(secret));
+        assertTrue(limited.hasWon());
+        assertTrue(!limited.getMovesOverBudget().isEmpty());
+        assertTrue(limited.isSolutionsCountEstimated());
+        int numOpeningMoves = game.getStrategy().getOpeningMoves(variant).size();
+        for (int i = numOpeningMoves; i < limited.getMoves().size(); i++) {
+            Move move = limited.getMoves().get(i);
+            for (int j = 0; j < i; j++) {
+                Move earlier = limited.getMoves().get(j);
+                assertEquals(move.toString(), limited.getScores().get(j), Score.score(move, earlier));
+            }
+        }
+
+        game.setMoveBudget(0, TimeUnit.NANOSECONDS);
+        Result unlimitedAgain = game.play(new ComputerScorer(secret));
+        assertEquals(unlimited.getMoves(), unlimitedAgain.getMoves());
+        assertTrue(unlimitedAgain.getMovesOverBudget().isEmpty());
+        assertTrue(!unlimitedAgain.isSolutionsCountEstimated());
+    }
 }
@@ -0,0 +1,86 @@
+package com.tom_e_white.mastermind;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class TestGameLog {
+
+    @Test
+    public void testLogEveryGame() throws IOException {
+        File file = File.createTempFile("mastermind", ".log");
+        file.deleteOnExit();
+        final GameLogWriter log = new GameLogWriter(file, Variant.STANDARD);
+        Statistics expected;
+        try (Tournament tournament = new Tournament(new Tournament.GameFactory() {
+            @Override
+            public Game newGame() {
+                Game game = new Game();
+                game.setEngine(Game.Engine.BITSET);
+                game.setLog(log);
+                return game;
+            }
+        })) {
+            expected = tournament.run();
+        }
+        log.close();
+        assertEquals(1296, log.getGames());
+
+        // a byte for the number of moves, one or two for the solutions count, and two per move
+        double totalMoves = expected.getAverageMoves() * expected.getGames();
+        assertTrue(file.length() <= GameLog.HEADER_SIZE + 3 * 1296 + 2 * totalMoves);
+
+        Statistics actual = new Statistics();
+        GameLogReader reader = new GameLogReader(file);
+        try {
+            assertEquals(Variant.STANDARD, reader.getVariant());
+            while (reader.next()) {
+                actual.add(reader.getResult());
+            }
+        } finally {
+            reader.close();
+        }
+        assertEquals(expected.getGames(), actual.getGames());
+        assertEquals(expected.getMovesHistogram(), actual.getMovesHistogram());
+        assertEquals(expected.getSolutionsHistogram(), actual.getSolutionsHistogram());
+    }
+
+    @Test
+    public void testAppendBigVariant() throws IOException {
+        Variant variant = new Variant(5, 8, 12); // not the default number of moves, which the header must keep
+        File file = File.createTempFile("mastermind", ".log");
+        file.deleteOnExit();
+        Move secret = new Move(variant, 7, 0, 3, 3, 1);
+        Game game = new Game();
+        game.setVariant(variant);
+        game.setEngine(Game.Engine.SEQUENTIAL);
+        Result result = null;
+        for (int i = 0; i < 2; i++) { // the second writer appends to the first's log
+            GameLogWriter log = new GameLogWriter(file, variant);
+            game.setLog(log);
+            result = game.play(new ComputerScorer(secret));
+            log.close();
+        }
+
+        GameLogReader reader = new GameLogReader(file);
+        try {
+            assertEquals(variant, reader.getVariant());
+            for (int i = 0; i < 2; i++) {
+                assertTrue(reader.next());
+                Result logged = reader.getResult();
+                assertEquals(result.getMoves(), logged.getMoves());
+                assertEquals(result.getScores(), logged.getScores());
+                assertEquals(result.getSolutionsCount(), logged.getSolutionsCount());
+                assertTrue(reader.hasWon());
+            }
+            assertFalse(reader.next());
+        } finally {
+            reader.close();
+        }
+    }
+}
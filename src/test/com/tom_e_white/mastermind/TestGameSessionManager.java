@@ -0,0 +1,154 @@
+package com.tom_e_white.mastermind;
+
+import org.junit.Test;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestGameSessionManager {
+
+    @Test
+    public void testSessionsPlayToTheEnd() throws Exception {
+        GameSessionManager manager = new GameSessionManager(1024 * 1024, 10, TimeUnit.SECONDS);
+        try {
+            Move secret = new Move(0, 4, 5, 5);
+            GameSessionManager.Session session = manager.open(bitSetGame(), new ComputerScorer(secret));
+            Result result = session.getResult();
+            assertTrue(result.hasWon());
+            assertEquals(secret, result.getMoves().get(result.getMoves().size() - 1));
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void testMemoryCap() throws Exception {
+        long solverBytes = Game.Engine.BITSET.estimateSolverBytes(Variant.STANDARD);
+        GameSessionManager manager = new GameSessionManager(solverBytes, 1, TimeUnit.HOURS);
+        try {
+            CountDownLatch waiting = new CountDownLatch(1);
+            GameSessionManager.Session idle = manager.open(bitSetGame(), absentPlayer(waiting));
+            waiting.await();
+            try {
+                manager.open(bitSetGame(), new ComputerScorer(new Move(0, 4, 5, 5)));
+                fail("Expected memory cap to be reached");
+            } catch (RejectedExecutionException e) {
+                // expected, since the idle session hasn't been waiting long enough to evict
+            }
+            assertEquals(0, manager.evictIdle());
+            assertEquals(1, manager.getNumSessions());
+
+            idle.cancel();
+            assertTrue(idle.isEvicted());
+            assertEquals(0, manager.getNumSessions());
+            assertTrue(idle.awaitRelease(10, TimeUnit.SECONDS));
+            assertEquals(0, manager.getSolverBytesInUse());
+            assertTrue(manager.open(bitSetGame(), new ComputerScorer(new Move(0, 4, 5, 5))).getResult().hasWon());
+        } finally {
+            manager.close();
+        }
+    }
+
+    @Test
+    public void testIdleSessionsAreEvicted() throws Exception {
+        long solverBytes = Game.Engine.BITSET.estimateSolverBytes(Variant.STANDARD);
+        GameSessionManager manager = new GameSessionManager(solverBytes, 20, TimeUnit.MILLISECONDS);
+        try {
+            CountDownLatch waiting = new CountDownLatch(1);
+            GameSessionManager.Session idle = manager.open(bitSetGame(), absentPlayer(waiting));
+            waiting.await();
+            Thread.sleep(100);
+            assertTrue(manager.open(bitSetGame(), new ComputerScorer(new Move(0, 4, 5, 5))).getResult().hasWon());
+            assertTrue(idle.isEvicted());
+            try {
+                idle.getResult();
+                fail("Expected evicted session to be cancelled");
+            } catch (CancellationException e) {
+                // expected
+            }
+        } finally {
+            manager.close();
+        }
+    }
+
+    /**
+     * A session whose scorer ignores interruption keeps its memory after it is cancelled, until the scorer returns.
+     */
+    @Test
+    public void testMemoryIsHeldUntilSessionThreadExits() throws Exception {
+        long solverBytes = Game.Engine.BITSET.estimateSolverBytes(Variant.STANDARD);
+        GameSessionManager manager = new GameSessionManager(solverBytes, 1, TimeUnit.HOURS);
+        try {
+            CountDownLatch waiting = new CountDownLatch(1);
+            CountDownLatch answer = new CountDownLatch(1);
+            GameSessionManager.Session blocked = manager.open(bitSetGame(), deafPlayer(waiting, answer));
+            waiting.await();
+            blocked.cancel();
+            assertEquals(0, manager.getNumSessions());
+            assertTrue(!blocked.awaitRelease(100, TimeUnit.MILLISECONDS));
+            assertEquals(solverBytes, manager.getSolverBytesInUse());
+            try {
+                manager.open(bitSetGame(), new ComputerScorer(new Move(0, 4, 5, 5)));
+                fail("Expected memory cap to be reached");
+            } catch (RejectedExecutionException e) {
+                // expected, since the cancelled session still holds its game
+            }
+
+            answer.countDown();
+            assertTrue(blocked.awaitRelease(10, TimeUnit.SECONDS));
+            assertEquals(0, manager.getSolverBytesInUse());
+        } finally {
+            manager.close();
+        }
+    }
+
+    /**
+     * A scorer that waits for an answer, ignoring interruption, as a blocking read from a console does.
+     */
+    private static Scorer deafPlayer(final CountDownLatch waiting, final CountDownLatch answer) {
+        return new Scorer() {
+            @Override
+            public Score score(Move move) {
+                waiting.countDown();
+                while (true) {
+                    try {
+                        answer.await();
+                        return Score.ALL_WHITE;
+                    } catch (InterruptedException e) {
+                        // carry on waiting
+                    }
+                }
+            }
+        };
+    }
+
+    /**
+     * A scorer that never scores a move.
+     */
+    private static Scorer absentPlayer(final CountDownLatch waiting) {
+        return new Scorer() {
+            @Override
+            public Score score(Move move) {
+                waiting.countDown();
+                try {
+                    Thread.sleep(Long.MAX_VALUE);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                throw new CancellationException();
+            }
+        };
+    }
+
+    private static Game bitSetGame() {
+        Game game = new Game();
+        game.setEngine(Game.Engine.BITSET);
+        return game;
+    }
+}
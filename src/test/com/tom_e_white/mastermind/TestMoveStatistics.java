@@ -0,0 +1,45 @@
+package com.tom_e_white.mastermind;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestMoveStatistics {
+
+    @Test
+    public void testMetricsForEveryGame() {
+        final MoveStatistics metrics = new MoveStatistics();
+        Statistics statistics;
+        try (Tournament tournament = new Tournament(new Tournament.GameFactory() {
+            @Override
+            public Game newGame() {
+                Game game = new Game();
+                game.setEngine(Game.Engine.BITSET);
+                game.setMetrics(metrics);
+                return game;
+            }
+        })) {
+            statistics = tournament.run();
+        }
+        metrics.report(System.out);
+        assertEquals(statistics.getGames(), metrics.getGames());
+        assertEquals(1296, metrics.getMoves(1));
+        assertEquals(1295, metrics.getMoves(2));
+
+        // the average size of the partition each secret falls into after the first move
+        ScoreTable table = ScoreTable.get();
+        int first = new Move(0, 1, 2, 3).code();
+        int[] partitionSizes = new int[Variant.STANDARD.getNumScoreIds()];
+        for (int secret = 0; secret < 1296; secret++) {
+            partitionSizes[table.score(secret, first)]++;
+        }
+        double total = 0;
+        for (int size : partitionSizes) {
+            total += (double) size * size;
+        }
+        assertEquals(total / 1296, metrics.getAverageCandidates(1), 1e-9);
+        assertEquals(0, metrics.getAverageNodes(3), 0);
+        assertTrue(metrics.getSearchNanosPercentile(0.5) <= metrics.getSearchNanosPercentile(0.99));
+    }
+}
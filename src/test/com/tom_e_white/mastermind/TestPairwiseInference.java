@@ -0,0 +1,79 @@
+package com.tom_e_white.mastermind;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestPairwiseInference {
+
+    /**
+     * For every pair of moves that differ in one or two positions, and every secret, check that everything inferred
+     * from the two scores is true of the secret.
+     */
+    @Test
+    public void testInferencesHoldForEverySecret() {
+        Variant variant = new Variant(4, 4);
+        ScoreTable table = ScoreTable.get(variant);
+        int numCodes = variant.getNumCodes();
+        long reductions = 0;
+        for (int code1 = 0; code1 < numCodes; code1++) {
+            Move move1 = table.getMove(code1);
+            for (int code2 = 0; code2 < numCodes; code2++) {
+                Move move2 = table.getMove(code2);
+                int numDiffs = move1.diff(move2).size();
+                if (numDiffs < 1 || numDiffs > 2) {
+                    continue;
+                }
+                for (int code = 0; code < numCodes; code++) {
+                    final Move secret = table.getMove(code);
+                    PairwiseInference inference = new PairwiseInference(variant);
+                    PairwiseInference.Domains check = new PairwiseInference.Domains() {
+                        @Override
+                        public boolean remove(int pos, int colour) {
+                            assertTrue(secret + " has " + colour + " at " + pos, secret.get(pos).ordinal() != colour);
+                            return true;
+                        }
+
+                        @Override
+                        public boolean fix(int pos, int colour) {
+                            assertEquals(secret + " at " + pos, colour, secret.get(pos).ordinal());
+                            return true;
+                        }
+                    };
+                    inference.add(move1, Score.score(secret, move1), check);
+                    inference.add(move2, Score.score(secret, move2), check);
+                    reductions += inference.getReductions();
+                }
+            }
+        }
+        assertTrue(reductions > 0);
+    }
+
+    /**
+     * The example from the README: a white turning into a red when only the first peg changes means the first
+     * move's colour is in the first position.
+     */
+    @Test
+    public void testReadmeExample() {
+        final int[] fixed = new int[4];
+        PairwiseInference inference = new PairwiseInference(Variant.STANDARD);
+        PairwiseInference.Domains domains = new PairwiseInference.Domains() {
+            @Override
+            public boolean remove(int pos, int colour) {
+                return true;
+            }
+
+            @Override
+            public boolean fix(int pos, int colour) {
+                fixed[pos] = colour + 1;
+                return true;
+            }
+        };
+        Move move1 = new Move(Move.Peg.BLUE, Move.Peg.GREEN, Move.Peg.PURPLE, Move.Peg.ORANGE);
+        Move move2 = new Move(Move.Peg.YELLOW, Move.Peg.GREEN, Move.Peg.PURPLE, Move.Peg.ORANGE);
+        inference.add(move1, new Score(Score.Peg.WHITE), domains);
+        inference.add(move2, new Score(Score.Peg.RED), domains);
+        assertEquals(Move.Peg.BLUE.ordinal() + 1, fixed[0]);
+    }
+}
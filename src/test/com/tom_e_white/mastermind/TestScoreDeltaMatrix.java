@@ -0,0 +1,45 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.collect.Multiset;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+
+public class TestScoreDeltaMatrix {
+
+    @Test
+    public void testMatrixMatchesScoreDeltas() throws IOException {
+        final Variant variant = new Variant(3, 4);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        new ScoreDeltaMatrix(variant, 2).write(out);
+        final int[] pairs = new int[1];
+        Variant read = ScoreDeltaMatrix.read(new DataInputStream(new ByteArrayInputStream(out.toByteArray())),
+                new ScoreDeltaMatrix.Visitor() {
+                    @Override
+                    public void visit(int move1, int move2, int[] counts) {
+                        Multiset<Scores.ScoreDelta> expected = Scores.scoreDelta(variant, colours(variant, move1),
+                                colours(variant, move2));
+                        for (int delta = 0; delta < counts.length; delta++) {
+                            assertEquals(expected.count(ScoreDeltaMatrix.scoreDelta(variant, delta)), counts[delta]);
+                        }
+                        pairs[0]++;
+                    }
+                });
+        assertEquals(variant, read);
+        assertEquals(64 * 63 / 2, pairs[0]);
+    }
+
+    private static List<Integer> colours(Variant variant, int code) {
+        int[] colours = new int[variant.getNumPositions()];
+        for (int pos = 0; pos < colours.length; pos++) {
+            colours[pos] = variant.colour(code, pos);
+        }
+        return Scores.move(colours);
+    }
+}
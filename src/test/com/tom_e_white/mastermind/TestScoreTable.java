@@ -0,0 +1,96 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.tom_e_white.mastermind.Score.Peg.*;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+
+public class TestScoreTable {
+
+    @Test
+    public void testCodes() {
+        ScoreTable table = ScoreTable.get();
+        assertEquals(1296, Variant.STANDARD.getNumCodes());
+        assertEquals(0, new Move(0, 0, 0, 0).code());
+        assertEquals(1295, new Move(5, 5, 5, 5).code());
+        assertEquals(new Move(0, 1, 2, 3), table.getMove(new Move(0, 1, 2, 3).code()));
+        for (int code = 0; code < Variant.STANDARD.getNumCodes(); code++) {
+            Move move = table.getMove(code);
+            assertEquals(code, move.code());
+            for (int pos = 0; pos < Variant.STANDARD.getNumPositions(); pos++) {
+                assertEquals(move.get(pos).ordinal(), Variant.STANDARD.colour(code, pos));
+            }
+        }
+    }
+
+    @Test
+    public void testScoreIds() {
+        ScoreTable table = ScoreTable.get();
+        assertEquals(Score.ALL_WHITE, table.getScore(Variant.STANDARD.scoreId(4, 0)));
+        assertEquals(new Score(RED, RED, WHITE), table.getScore(new Score(WHITE, RED, RED).id()));
+        assertSame(table.getScore(Variant.STANDARD.scoreId(1, 2)),
+                Score.score(new Move(0, 2, 2, 3), new Move(1, 2, 3, 2)));
+    }
+
+    @Test
+    public void testTableMatchesPegByPegScoring() {
+        ScoreTable table = ScoreTable.get();
+        for (int secret = 0; secret < Variant.STANDARD.getNumCodes(); secret++) {
+            for (int move = 0; move < Variant.STANDARD.getNumCodes(); move++) {
+                Score expected = score(table.getMove(secret), table.getMove(move));
+                assertEquals(expected, table.getScore(table.score(secret, move)));
+            }
+        }
+    }
+
+    @Test
+    public void testComputedScoresForBigVariant() {
+        Variant variant = new Variant(5, 8);
+        ScoreTable table = ScoreTable.get(variant);
+        assertFalse(table.isPrecomputed());
+        assertEquals(32768, variant.getNumCodes());
+        assertEquals(new Move(variant, 7, 0, 3, 3, 1), table.getMove(variant.code(Scores.move(7, 0, 3, 3, 1))));
+        for (int secret = 0; secret < variant.getNumCodes(); secret += 97) {
+            for (int move = 0; move < variant.getNumCodes(); move += 89) {
+                Score expected = score(table.getMove(secret), table.getMove(move));
+                assertEquals(expected, table.getScore(table.score(secret, move)));
+            }
+        }
+    }
+
+    /**
+     * Scores a move by matching pegs one by one, to check the table against.
+     */
+    private static Score score(Move secret, Move move) {
+        int numPositions = secret.getVariant().getNumPositions();
+        List<Score.Peg> pegs = Lists.newArrayList();
+        List<Boolean> matched = Lists.newArrayList(Collections.nCopies(numPositions, false));
+        List<Boolean> used = Lists.newArrayList(Collections.nCopies(numPositions, false));
+        for (int i = 0; i < numPositions; i++) {
+            if (move.get(i) == secret.get(i)) {
+                pegs.add(WHITE);
+                matched.set(i, true);
+                used.set(i, true);
+            }
+        }
+        for (int i = 0; i < numPositions; i++) {
+            if (matched.get(i)) {
+                continue;
+            }
+            for (int j = 0; j < numPositions; j++) {
+                if (i != j && !used.get(j) && move.get(i) == secret.get(j)) {
+                    pegs.add(RED);
+                    used.set(j, true);
+                    break;
+                }
+            }
+        }
+        return new Score(secret.getVariant(), pegs);
+    }
+}
@@ -0,0 +1,98 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Range;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class TestShardedTournament {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Run two workers at once on the same directory, as separate processes would, and check that between them they
+     * play every shard exactly once, and that the merged statistics match a single tournament's.
+     */
+    @Test
+    public void testWorkersShareShards() throws Exception {
+        final Variant variant = new Variant(3, 4);
+        final File dir = folder.getRoot();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            Callable<Integer> worker = new Callable<Integer>() {
+                @Override
+                public Integer call() throws IOException {
+                    return new ShardedTournament(dir, variant, "minimax", 1).work(5);
+                }
+            };
+            Future<Integer> first = executor.submit(worker);
+            Future<Integer> second = executor.submit(worker);
+            assertEquals(13, first.get() + second.get()); // 64 secrets in shards of 5
+        } finally {
+            executor.shutdown();
+        }
+
+        ShardedTournament merger = new ShardedTournament(dir, variant, "minimax");
+        Statistics actual = merger.merge();
+        assertTrue(merger.getMissing().isEmpty());
+        Statistics expected;
+        try (Tournament tournament = new Tournament(variant, new Tournament.GameFactory() {
+            @Override
+            public Game newGame() {
+                return StrategyTournament.newGame(variant, new MinimaxStrategy());
+            }
+        })) {
+            expected = tournament.run();
+        }
+        assertEquals(expected.getGames(), actual.getGames());
+        assertEquals(expected.getNumLost(), actual.getNumLost());
+        assertEquals(expected.getMovesHistogram(), actual.getMovesHistogram());
+        assertEquals(expected.getSolutionsHistogram(), actual.getSolutionsHistogram());
+    }
+
+    @Test
+    public void testMergeReportsMissingAndOverlappingShards() throws IOException {
+        Variant variant = new Variant(3, 4);
+        File dir = folder.getRoot();
+        ShardedTournament tournament = new ShardedTournament(dir, variant, "first", 1);
+        tournament.play(0, 20);
+        tournament.play(30, 64);
+        assertEquals(54, tournament.merge().getGames());
+        assertEquals(ImmutableList.of(Range.closedOpen(20, 30)), tournament.getMissing());
+
+        tournament.play(10, 30);
+        try {
+            tournament.merge();
+            fail("Expected overlapping shards to be rejected");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testMergeRejectsIncompleteShards() throws IOException {
+        Variant variant = new Variant(3, 4);
+        ShardedTournament tournament = new ShardedTournament(folder.getRoot(), variant, "first", 1);
+        Statistics statistics = tournament.play(0, 20);
+        StrategyTournament.writeCheckpoint(tournament.shardFile(20, 64), statistics); // a file with too few games
+        try {
+            tournament.merge();
+            fail("Expected a shard with missing games to be rejected");
+        } catch (IOException e) {
+            // expected
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.collect.Lists;
+import com.google.common.primitives.Ints;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestSolvers {
+
+    /**
+     * Play every secret with the JaCoP and bitset solvers side by side, checking that they agree on the number of
+     * solutions and the next move at every point in the game.
+     */
+    @Test
+    public void testEnginesAgree() {
+        assertAgreesWithBitSetSolver(Game.Engine.JACOP);
+    }
+
+    /**
+     * Check the score constraint encoding in the same way, so that it prunes no more and no less than the
+     * permutations of the score do.
+     */
+    @Test
+    public void testScoreConstraintAgreesWithBitSetSolver() {
+        assertAgreesWithBitSetSolver(Game.Engine.JACOP_SCORE_CONSTRAINT);
+    }
+
+    /**
+     * Check that pairwise inference doesn't rule out any solutions.
+     */
+    @Test
+    public void testPairwiseInferenceAgreesWithBitSetSolver() {
+        assertAgreesWithBitSetSolver(new Speculation.SolverFactory() {
+            @Override
+            public Solver newSolver() {
+                JaCoPSolver solver = new JaCoPSolver(Variant.STANDARD);
+                solver.setPairwiseInference(true);
+                return solver;
+            }
+        });
+    }
+
+    /**
+     * Whatever order the search visits them in, every heuristic should find the same solutions.
+     */
+    @Test
+    public void testHeuristicsFindTheSameSolutions() {
+        ScoreTable table = ScoreTable.get();
+        for (JaCoPSolver.Heuristic heuristic : JaCoPSolver.Heuristic.values()) {
+            for (int code = 0; code < Variant.STANDARD.getNumCodes(); code += 97) {
+                Move secret = table.getMove(code);
+                JaCoPSolver solver = new JaCoPSolver(Variant.STANDARD);
+                solver.setHeuristic(heuristic, 42);
+                Solver bitset = new BitSetSolver();
+                List<Move> played = Lists.newArrayList(new Move(0, 1, 2, 3), new Move(2, 3, 4, 5));
+                for (Move move : played) {
+                    Score score = Score.score(secret, move);
+                    solver.add(move, score);
+                    bitset.add(move, score);
+                }
+                assertArrayEquals(heuristic + " " + secret, bitset.candidates(), solver.candidates());
+                assertTrue(heuristic + " " + secret, Ints.contains(bitset.candidates(),
+                        solver.search(played).code()));
+            }
+        }
+    }
+
+    private static void assertAgreesWithBitSetSolver(final Game.Engine engine) {
+        assertAgreesWithBitSetSolver(new Speculation.SolverFactory() {
+            @Override
+            public Solver newSolver() {
+                return engine.newSolver(Variant.STANDARD);
+            }
+        });
+    }
+
+    private static void assertAgreesWithBitSetSolver(Speculation.SolverFactory factory) {
+        ScoreTable table = ScoreTable.get();
+        for (int code = 0; code < Variant.STANDARD.getNumCodes(); code++) {
+            Move secret = table.getMove(code);
+            Solver reference = factory.newSolver();
+            Solver bitset = new BitSetSolver();
+            List<Move> played = Lists.newArrayList(new Move(0, 1, 2, 3), new Move(2, 3, 4, 5));
+            for (Move move : played) {
+                Score score = Score.score(secret, move);
+                reference.add(move, score);
+                bitset.add(move, score);
+                assertEquals(secret.toString(), reference.countSolutions(), bitset.countSolutions());
+            }
+            if (played.contains(secret)) {
+                continue; // already won, so there is no unplayed solution to search for
+            }
+            while (true) {
+                Move move = reference.search(played);
+                assertEquals(secret.toString(), move, bitset.search(played));
+                played.add(move);
+                Score score = Score.score(secret, move);
+                if (score.equals(Score.ALL_WHITE)) {
+                    break;
+                }
+                reference.add(move, score);
+                bitset.add(move, score);
+                assertEquals(secret.toString(), reference.countSolutions(), bitset.countSolutions());
+            }
+        }
+    }
+
+    @Test
+    public void testBitSetSolverFindsSecret() {
+        ScoreTable table = ScoreTable.get();
+        for (int code = 0; code < Variant.STANDARD.getNumCodes(); code++) {
+            Move secret = table.getMove(code);
+            Solver solver = new BitSetSolver();
+            for (int other = 0; other < Variant.STANDARD.getNumCodes(); other += 7) {
+                Move move = table.getMove(other);
+                solver.add(move, Score.score(secret, move));
+            }
+            assertEquals(1, solver.countSolutions());
+            assertEquals(secret, solver.search(Lists.<Move>newArrayList()));
+        }
+    }
+
+    /**
+     * Check the sequential solver against the bitset solver on a bigger variant.
+     */
+    @Test
+    public void testSequentialSolverAgreesWithBitSetSolver() {
+        Variant variant = new Variant(5, 8);
+        ScoreTable table = ScoreTable.get(variant);
+        for (int code = 0; code < variant.getNumCodes(); code += 331) {
+            Move secret = table.getMove(code);
+            Solver sequential = new SequentialSolver(variant);
+            Solver bitset = new BitSetSolver(variant);
+            List<Move> played = Lists.newArrayList();
+            while (true) {
+                Move move = sequential.search(played);
+                assertEquals(secret.toString(), move, bitset.search(played));
+                played.add(move);
+                Score score = Score.score(secret, move);
+                if (score.isAllWhite()) {
+                    break;
+                }
+                sequential.add(move, score);
+                bitset.add(move, score);
+                assertEquals(secret.toString(), bitset.countSolutions(), sequential.countSolutions());
+            }
+        }
+    }
+
+    /**
+     * Once the deadline has passed, the sequential solver estimates counts, but still only plays solutions.
+     */
+    @Test
+    public void testSequentialSolverDeadline() {
+        Variant variant = new Variant(5, 8);
+        ScoreTable table = ScoreTable.get(variant);
+        Move secret = new Move(variant, 7, 7, 7, 7, 6);
+        Move first = table.getMove(0);
+        Solver solver = new SequentialSolver(variant);
+        solver.add(first, Score.score(secret, first));
+        Solver bitset = new BitSetSolver(variant);
+        bitset.add(first, Score.score(secret, first));
+        List<Move> played = Lists.<Move>newArrayList(first);
+
+        solver.setDeadline(System.nanoTime() - 1);
+        assertTrue(solver.countSolutions() > 0);
+        assertTrue(solver.hitDeadline());
+        assertEquals(bitset.search(played), solver.search(played));
+        assertTrue(solver.hitDeadline());
+
+        solver.setDeadline(Long.MAX_VALUE);
+        assertEquals(bitset.countSolutions(), solver.countSolutions());
+        assertTrue(!solver.hitDeadline());
+    }
+}
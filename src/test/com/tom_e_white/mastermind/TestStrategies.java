@@ -0,0 +1,113 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestStrategies {
+
+    @Test
+    public void testMinimaxNeedsAtMostFiveMoves() {
+        Statistics statistics = play(new MinimaxStrategy());
+        statistics.report(System.out);
+        assertEquals(0, statistics.getNumLost());
+        assertTrue(statistics.getMovesHistogram().toString(),
+                statistics.getMovesHistogram().elementSet().last() <= 5);
+    }
+
+    /**
+     * With no time left, a partition strategy plays a solution without trying any guesses, and doesn't remember that
+     * choice for when there is time.
+     */
+    @Test
+    public void testPartitionStrategyDeadline() {
+        Move first = new Move(0, 0, 1, 1);
+        Solver solver = new BitSetSolver();
+        solver.add(first, Score.score(new Move(2, 3, 4, 5), first));
+        List<Move> played = Lists.newArrayList(first);
+        MinimaxStrategy strategy = new MinimaxStrategy();
+        solver.setDeadline(System.nanoTime() - 1);
+        assertEquals(solver.candidates()[0], strategy.nextMove(solver, played).code());
+        solver.setDeadline(Long.MAX_VALUE);
+        assertEquals(new MinimaxStrategy().nextMove(solver, played), strategy.nextMove(solver, played));
+    }
+
+    /**
+     * The entropy and expected size strategies should do better on average than minimax, and since every game
+     * starts with the same move the memo is hit for all but the first game's second move, at least.
+     */
+    @Test
+    public void testPartitionStrategies() {
+        double minimaxAverage = play(new MinimaxStrategy()).getAverageMoves();
+        assertEquals(4.476, minimaxAverage, 0.001);
+        for (PartitionStrategy strategy : new PartitionStrategy[] { new EntropyStrategy(),
+                new ExpectedSizeStrategy() }) {
+            Statistics statistics = play(strategy);
+            String name = strategy.getClass().getSimpleName();
+            assertEquals(name, 0, statistics.getNumLost());
+            assertTrue(name, statistics.getAverageMoves() < minimaxAverage);
+            assertTrue(name, strategy.getMemoStats().hitCount() >= 1295);
+        }
+    }
+
+    /**
+     * With no time left, the optimal strategy plays a solution rather than searching the game tree.
+     */
+    @Test
+    public void testOptimalStrategyDeadline() {
+        Variant variant = new Variant(4, 4);
+        Solver solver = new BitSetSolver(variant);
+        List<Move> played = Lists.newArrayList();
+        OptimalStrategy strategy = new OptimalStrategy();
+        solver.setDeadline(System.nanoTime() - 1);
+        assertEquals(solver.candidates()[0], strategy.nextMove(solver, played).code());
+        solver.setDeadline(Long.MAX_VALUE);
+        assertEquals(new OptimalStrategy().nextMove(solver, played), strategy.nextMove(solver, played));
+    }
+
+    /**
+     * Playing the optimal strategy should take as many moves as the search said it would, and no more than any
+     * other strategy.
+     */
+    @Test
+    public void testOptimalStrategy() {
+        Variant variant = new Variant(4, 4);
+        OptimalStrategy optimal = new OptimalStrategy();
+        int totalMoves = optimal.getTotalMoves(variant);
+        Statistics statistics = play(variant, optimal);
+        assertEquals(0, statistics.getNumLost());
+        assertEquals(totalMoves, statistics.getAverageMoves() * statistics.getGames(), 0.001);
+        for (String name : Strategies.NAMES) {
+            double average = play(variant, Strategies.forName(name)).getAverageMoves();
+            assertTrue(name, statistics.getAverageMoves() <= average);
+        }
+
+        // with a memo too small to hold the whole tree, sets are solved again and the strategy is the same
+        OptimalStrategy small = new OptimalStrategy(64);
+        assertEquals(totalMoves, small.getTotalMoves(variant));
+        assertEquals(statistics.getMovesHistogram(), play(variant, small).getMovesHistogram());
+    }
+
+    private static Statistics play(Strategy strategy) {
+        return play(Variant.STANDARD, strategy);
+    }
+
+    private static Statistics play(final Variant variant, final Strategy strategy) {
+        try (Tournament tournament = new Tournament(variant, new Tournament.GameFactory() {
+            @Override
+            public Game newGame() {
+                Game game = new Game();
+                game.setVariant(variant);
+                game.setEngine(Game.Engine.BITSET);
+                game.setStrategy(strategy);
+                return game;
+            }
+        })) {
+            return tournament.run();
+        }
+    }
+}
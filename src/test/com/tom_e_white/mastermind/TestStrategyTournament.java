@@ -0,0 +1,46 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.collect.ImmutableList;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+public class TestStrategyTournament {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * Run a tournament, delete some of its checkpoints, and check that running it again only replays those shards
+     * and comes to the same result.
+     */
+    @Test
+    public void testResumeFromCheckpoints() throws IOException {
+        Variant variant = new Variant(3, 4);
+        File dir = folder.getRoot();
+        StrategyTournament tournament = new StrategyTournament(variant, ImmutableList.of("first", "minimax"), dir, 10,
+                2);
+        Map<String, Statistics> expected = tournament.run();
+        assertEquals(2 * 7, tournament.getShardsPlayed()); // 64 secrets in shards of 10
+        assertEquals(64, expected.get("first").getGames());
+        assertEquals(64, expected.get("minimax").getGames());
+
+        assertTrue(tournament.checkpointFile("first", 20, 30).delete());
+        assertTrue(tournament.checkpointFile("minimax", 60, 64).delete());
+        Map<String, Statistics> actual = tournament.run();
+        assertEquals(2, tournament.getShardsPlayed());
+        for (String name : expected.keySet()) {
+            assertEquals(name, expected.get(name).getGames(), actual.get(name).getGames());
+            assertEquals(name, expected.get(name).getNumLost(), actual.get(name).getNumLost());
+            assertEquals(name, expected.get(name).getMovesHistogram(), actual.get(name).getMovesHistogram());
+            assertEquals(name, expected.get(name).getSolutionsHistogram(), actual.get(name).getSolutionsHistogram());
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.tom_e_white.mastermind;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Lists;
+import org.junit.Test;
+
+import java.util.List;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+public class TestSymmetry {
+
+    @Test
+    public void testFirstMoves() {
+        Symmetry symmetry = new Symmetry(Variant.STANDARD);
+        ScoreTable table = ScoreTable.get();
+        int[] expected = {
+                new Move(0, 0, 0, 0).code(),
+                new Move(0, 0, 0, 1).code(),
+                new Move(0, 0, 1, 1).code(),
+                new Move(0, 0, 1, 2).code(),
+                new Move(0, 1, 2, 3).code()
+        };
+        assertArrayEquals(expected, symmetry.representatives());
+        assertEquals(new Move(0, 1, 2, 3), symmetry.canonical(new Move(5, 4, 3, 2)));
+        assertEquals(new Move(0, 0, 1, 2), symmetry.canonical(new Move(3, 5, 1, 5)));
+        assertEquals(table.getMove(0), symmetry.canonical(new Move(4, 4, 4, 4)));
+    }
+
+    /**
+     * Check canonical codes after a move against the lowest code found by applying every relabelling and
+     * permutation that leaves the move unchanged.
+     */
+    @Test
+    public void testCanonicalAfterMove() {
+        Variant variant = new Variant(3, 4);
+        ScoreTable table = ScoreTable.get(variant);
+        List<Move> history = ImmutableList.of(new Move(variant, 0, 0, 1));
+        Symmetry symmetry = new Symmetry(variant, history);
+        List<List<Integer>> positionPermutations = permutations(3);
+        List<List<Integer>> colourPermutations = permutations(4);
+        for (int code = 0; code < variant.getNumCodes(); code++) {
+            int lowest = Integer.MAX_VALUE;
+            for (List<Integer> positions : positionPermutations) {
+                for (List<Integer> colours : colourPermutations) {
+                    if (apply(variant, history.get(0).code(), positions, colours) == history.get(0).code()) {
+                        lowest = Math.min(lowest, apply(variant, code, positions, colours));
+                    }
+                }
+            }
+            assertEquals(table.getMove(code).toString(), lowest, symmetry.canonical(code));
+        }
+    }
+
+    private static int apply(Variant variant, int code, List<Integer> positions, List<Integer> colours) {
+        int[] image = new int[variant.getNumPositions()];
+        for (int pos = 0; pos < image.length; pos++) {
+            image[positions.get(pos)] = colours.get(variant.colour(code, pos));
+        }
+        int result = 0;
+        for (int colour : image) {
+            result = result * variant.getNumColours() + colour;
+        }
+        return result;
+    }
+
+    private static List<List<Integer>> permutations(int n) {
+        List<List<Integer>> permutations = Lists.newArrayList();
+        if (n == 0) {
+            permutations.add(Lists.<Integer>newArrayList());
+            return permutations;
+        }
+        for (List<Integer> permutation : permutations(n - 1)) {
+            for (int i = 0; i <= permutation.size(); i++) {
+                List<Integer> p = Lists.newArrayList(permutation);
+                p.add(i, n - 1);
+                permutations.add(p);
+            }
+        }
+        return permutations;
+    }
+}
@@ -7,32 +7,56 @@ import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 /**
- * A subclass of Game that checks that every constraint imposed is consistent with the
+ * A subclass of Game that checks that every constraint imposed by the JaCoP solver is consistent with the
  * (known) secret. If it is not then the test fails.
  */
 public class TestedGame extends Game {
     private Move secret;
 
-    public TestedGame(Move secret) {
-        this.secret = secret;
+    /**
+     * Check against the scorer's secret, which changes from game to game when a tournament plays the same game
+     * against a run of secrets.
+     */
+    @Override
+    public Result play(Scorer scorer) {
+        if (scorer instanceof ComputerScorer) {
+            secret = ((ComputerScorer) scorer).getSecret();
+        }
+        return super.play(scorer);
     }
 
-    protected void impose(PrimitiveConstraint constraint) {
-        assertConstraint(constraint);
-        super.impose(constraint);
+    @Override
+    protected Solver createSolver() {
+        if (getEngine() != Engine.JACOP) {
+            return super.createSolver();
+        }
+        return new TestedSolver();
+    }
+
+    private class TestedSolver extends JaCoPSolver {
+        @Override
+        protected void impose(PrimitiveConstraint constraint) {
+            assertConstraint(constraint, pegs);
+            super.impose(constraint);
+        }
+
+        @Override
+        public String toString() {
+            return TestedGame.this.toString();
+        }
     }
 
     /**
      * This ensures that we don't add a constraint that is false by failing immediately
      */
-    private void assertConstraint(PrimitiveConstraint c) {
+    private void assertConstraint(PrimitiveConstraint c, IntVar[] pegs) {
         if (secret == null) {
             return;
         }
-        assertTrue(c.toString(), constraintToExpr(c));
+        assertTrue(c.toString(), constraintToExpr(c, pegs));
     }
 
-    private boolean constraintToExpr(PrimitiveConstraint c) {
+    private boolean constraintToExpr(PrimitiveConstraint c, IntVar[] pegs) {
         if (c instanceof XeqC) {
             IntVar x = ((XeqC) c).x;
             int pos = 0;
@@ -45,19 +69,19 @@ public class TestedGame extends Game {
             fail("Illegal");
         }
         if (c instanceof Not) {
-            return !constraintToExpr(((Not) c).c);
+            return !constraintToExpr(((Not) c).c, pegs);
         }
         if (c instanceof Or) {
             boolean ret = false;
             for (PrimitiveConstraint pc : ((Or) c).listOfC) {
-                ret |= constraintToExpr(pc);
+                ret |= constraintToExpr(pc, pegs);
             }
             return ret;
         }
         if (c instanceof And) {
             boolean ret = true;
             for (PrimitiveConstraint pc : ((And) c).listOfC) {
-                ret &= constraintToExpr(pc);
+                ret &= constraintToExpr(pc, pegs);
             }
             return ret;
         }